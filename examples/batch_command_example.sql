@@ -0,0 +1,30 @@
+-- batch_command_example.sql
+set serverout on
+declare
+  v_rslt basex_command_result_list;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- run the maintenance commands in one pipelined batch
+  v_rslt := basex_client.bx_execute_batch(
+              basex_string_list('open test', 'set updindex true', 'optimize',
+                                'create index text', 'flush'),
+              stopOnError => false);
+
+  for i in 1 .. v_rslt.count loop
+    dbms_output.put_line(v_rslt(i).command || ': ' ||
+                         case v_rslt(i).ok when 1 then 'ok' else 'failed' end ||
+                         ' - ' || v_rslt(i).info);
+  end loop;
+
+  -- the same as a script, stopping at the first failed command
+  v_rslt := basex_client.bx_execute_script('open test' || chr(10) ||
+                                           '# show the database' || chr(10) ||
+                                           'info db');
+  dbms_output.put_line(v_rslt(v_rslt.count).output);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
@@ -0,0 +1,46 @@
+-- batch_example.sql
+set serverout on
+declare
+  v_inpt  clob;
+  v_qyid  varchar2(25);
+  v_batch basex_clob_list;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- set the query text
+  v_inpt := 'for $i in 1 to 1000 return <xml>Text { $i }</xml>';
+
+  -- get the query ID
+  v_qyid := basex_client.bx_query(v_inpt);
+
+  -- fetch the results 100 items per call, the last batch is short
+  loop
+    v_batch := basex_client.q_next_batch(v_qyid, 100);
+    for i in 1 .. v_batch.count loop
+      dbms_output.put_line(v_batch(i));
+    end loop;
+    exit when v_batch.count < 100;
+  end loop;
+
+  -- close query
+  basex_client.q_close(v_qyid);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
+
+-- the same results as rows
+declare
+  v_qyid  varchar2(25);
+begin
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+  v_qyid := basex_client.bx_query('for $i in 1 to 1000 return <xml>Text { $i }</xml>');
+  for r in (select column_value item from table(basex_client.q_string_rows(v_qyid))) loop
+    dbms_output.put_line(r.item);
+  end loop;
+  basex_client.q_close(v_qyid);
+  basex_client.close_session();
+end;
+/
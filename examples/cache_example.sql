@@ -0,0 +1,35 @@
+-- cache_example.sql
+set serverout on
+declare
+  v_inpt  clob;
+  v_qyid  varchar2(25);
+  v_outp  clob;
+  v_stats basex_cache_stats;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- keep results for 30 seconds, up to 8 MB
+  basex_client.set_result_cache(30, 8388608);
+
+  dbms_lob.createtemporary(v_outp, true);
+  v_inpt := 'declare variable $n external; for $i in 1 to $n return <xml>Text { $i }</xml>';
+
+  -- the second run is answered from the cache
+  for i in 1 .. 2 loop
+    v_qyid := basex_client.bx_prepare(v_inpt);
+    basex_client.q_bind(v_qyid, '$n', '10', 'xs:integer');
+    basex_client.q_results(v_qyid, v_outp);
+  end loop;
+  dbms_output.put_line(v_outp);
+
+  v_stats := basex_client.bx_result_cache_stats;
+  dbms_output.put_line('hits: ' || v_stats.hits || ', misses: ' || v_stats.misses);
+
+  -- switch the cache off again
+  basex_client.set_result_cache(0);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
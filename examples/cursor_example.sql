@@ -0,0 +1,29 @@
+-- cursor_example.sql
+set serverout on
+declare
+  v_qyid  varchar2(25);
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- keep at most 4 open queries, close those unused for 5 minutes
+  basex_client.set_max_cursors(4);
+  basex_client.set_cursor_timeout(300);
+
+  -- queries that are never closed, e.g. after an exception
+  for i in 1 .. 10 loop
+    v_qyid := basex_client.bx_query('for $i in 1 to 100 return <item>{ $i }</item>');
+    if basex_client.q_more(v_qyid) then
+      null;
+    end if;
+  end loop;
+
+  for c in (select * from basex_client_cursors) loop
+    dbms_output.put_line(c.query_id || ' ' || c.state || ': ' || c.heap_bytes || ' bytes, idle '
+                         || c.idle_seconds || ' s');
+  end loop;
+
+  -- close session
+  basex_client.close_session();
+end;
+/
@@ -0,0 +1,36 @@
+-- dedup_example.sql
+-- needs the basex_digests table from basex_tables.sql
+set serverout on
+declare
+  v_inpt  clob;
+  v_outp  clob;
+  v_stats basex_dedup_stats;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- skip documents that did not change since they were last sent
+  basex_client.set_dedup(true);
+
+  dbms_lob.createtemporary(v_outp, true);
+  basex_client.bx_execute('create db sync', v_outp);
+
+  -- the second run sends nothing
+  for i in 1 .. 2 loop
+    for d in 1 .. 10 loop
+      v_inpt := '<xml>Text ' || d || '</xml>';
+      basex_client.bx_replace('sync/' || d || '.xml', v_inpt);
+    end loop;
+  end loop;
+  commit;
+
+  v_stats := basex_client.bx_dedup_stats;
+  dbms_output.put_line('skipped: ' || v_stats.skipped || ' (' || v_stats.skipped_bytes || ' bytes), sent: '
+                       || v_stats.sent || ' (' || v_stats.sent_bytes || ' bytes)');
+
+  basex_client.set_dedup(false);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
@@ -0,0 +1,47 @@
+-- export_example.sql
+-- grant select on hr.employees to <user>;
+-- grant select on hr.departments to <user>;
+set serverout on
+declare
+  v_outp   clob;
+  v_result basex_ingest_result;
+begin
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- initialize output clobs
+  dbms_lob.createTemporary(v_outp, true);
+
+  -- create empty database
+  basex_client.bx_execute('create db HR', v_outp);
+  dbms_output.put_line(basex_client.bx_info);
+
+  -- one document per row, the first column is the path
+  v_result := basex_client.bx_export('add',
+    'select e.employee_id || ''.xml'' as path, e.employee_id, e.first_name,
+            e.last_name, e.hire_date, e.salary, e.department_id
+       from hr.employees e', 'EMPLOYEE');
+  dbms_output.put_line(v_result.documents || ' documents, ' || v_result.bytes_sent || ' bytes sent.');
+  for i in 1 .. v_result.failures.count loop
+    dbms_output.put_line(v_result.failures(i).name || ': ' || v_result.failures(i).info);
+  end loop;
+
+  -- all rows in one document
+  basex_client.bx_export_document('add', 'departments.xml',
+    'select department_id, department_name, location_id from hr.departments',
+    'DEPARTMENTS', 'DEPARTMENT');
+  dbms_output.put_line(basex_client.bx_info);
+
+  -- run query on database
+  basex_client.bx_execute('xquery count(collection(''HR'')/EMPLOYEE)', v_outp);
+  dbms_output.put_line('Employee count: ' || v_outp);
+  basex_client.bx_execute('xquery count(collection(''HR'')/DEPARTMENTS/DEPARTMENT)', v_outp);
+  dbms_output.put_line('Department count: ' || v_outp);
+
+  -- drop database
+  basex_client.bx_execute('drop db HR', v_outp);
+  dbms_output.put_line(basex_client.bx_info);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
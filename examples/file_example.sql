@@ -0,0 +1,35 @@
+-- file_example.sql
+-- needs the BASEX_FILES directory from system.sql with a file report.pdf
+set serverout on
+declare
+  v_outp clob;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- initialize output clobs
+  dbms_lob.createTemporary(v_outp, true);
+
+  -- create empty database
+  basex_client.bx_execute('create db database', v_outp);
+  dbms_output.put_line(basex_client.bx_info);
+
+  -- store a file of a directory, without loading it into a BLOB
+  basex_client.bx_store_file('report.pdf', 'BASEX_FILES', 'report.pdf');
+  dbms_output.put_line(basex_client.bx_info);
+
+  -- the same through a BFILE
+  basex_client.bx_store_file('copy.pdf', bfilename('BASEX_FILES', 'report.pdf'));
+  dbms_output.put_line(basex_client.bx_info);
+
+  -- write the resource back into the directory
+  basex_client.bx_retrieve_file('copy.pdf', 'BASEX_FILES', 'report_copy.pdf');
+  dbms_output.put_line(basex_client.bx_info);
+
+  -- drop database
+  basex_client.bx_execute('drop db database', v_outp);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
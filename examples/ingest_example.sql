@@ -0,0 +1,39 @@
+-- ingest_example.sql
+-- grant select on hr.employees to <user>;
+set serverout on
+declare
+  v_outp clob;
+  v_stat basex_ingest_result;
+begin
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- initialize output clobs
+  dbms_lob.createTemporary(v_outp, true);
+
+  -- create empty database
+  basex_client.bx_execute('create db HR', v_outp);
+
+  -- add one document per employee, 32 documents in flight
+  v_stat := basex_client.bx_ingest('add',
+    'select e.employee_id || ''.xml'', 
+            xmlelement("employee", 
+              xmlattributes(e.employee_id as "id"),
+              xmlelement("first", e.first_name),
+              xmlelement("last", e.last_name)
+            ).getClobVal()
+       from hr.employees e',
+    32);
+
+  -- report failed documents
+  for i in 1 .. v_stat.failures.count loop
+    dbms_output.put_line(v_stat.failures(i).name || ': ' || v_stat.failures(i).info);
+  end loop;
+  dbms_output.put_line(v_stat.documents || ' documents sent, ' || v_stat.failed_documents || ' failed.');
+
+  -- drop database
+  basex_client.bx_execute('drop db HR', v_outp);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
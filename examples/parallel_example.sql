@@ -0,0 +1,50 @@
+-- parallel_example.sql
+-- needs the basex_parallel_chunks and basex_parallel_tasks tables from
+-- basex_tables.sql and the create job privilege
+set serverout on
+declare
+  v_outp   clob;
+  v_result basex_parallel_result;
+begin
+  -- create the target database
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+  dbms_lob.createtemporary(v_outp, true);
+  basex_client.bx_execute('create db employees', v_outp);
+  basex_client.close_session();
+
+  -- one document per employee, 8 jobs loading chunks of 1000 rows each,
+  -- each job over its own session; optimize once at the end
+  v_result := basex_parallel.ingest_by_rowid(
+                host          => 'localhost',
+                port          => 1984,
+                username      => 'admin',
+                password      => 'admin',
+                database      => 'employees',
+                command       => 'add',
+                source        => 'select ''emp/'' || employee_id || ''.xml'', e.* '
+                              || 'from hr.employees e '
+                              || 'where rowid between :start_id and :end_id',
+                tableOwner    => 'HR',
+                tableName     => 'EMPLOYEES',
+                chunkSize     => 1000,
+                parallelLevel => 8,
+                rowTag        => 'EMPLOYEE',
+                optimize      => true);
+
+  dbms_output.put_line(v_result.documents || ' documents in ' || v_result.chunks || ' chunks, '
+                       || v_result.documents_per_second || ' documents/s, '
+                       || v_result.bytes_per_second || ' bytes/s');
+  dbms_output.put_line(v_result.failed_chunks || ' failed chunks, '
+                       || v_result.failed_documents || ' failed documents');
+
+  -- errors of the chunks
+  for c in (select start_id, end_id, error
+              from basex_parallel_chunks
+             where task_name = v_result.task_name
+               and error is not null) loop
+    dbms_output.put_line(c.start_id || ' .. ' || c.end_id || ': ' || c.error);
+  end loop;
+
+  basex_parallel.purge_task(v_result.task_name);
+end;
+/
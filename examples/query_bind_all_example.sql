@@ -0,0 +1,36 @@
+-- query_bind_all_example.sql
+set serverout on
+declare
+  v_inpt clob;
+  v_qyid varchar2(25);
+  v_outp clob;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- initialize output clobs
+  dbms_lob.createTemporary(v_outp, true);
+
+  -- set the query text
+  v_inpt := 'declare variable $name external; declare variable $from external; ' ||
+            'declare variable $to external; for $i in $from to $to return element { $name } { $i }';
+
+  -- get the query ID
+  v_qyid := basex_client.bx_query(v_inpt);
+
+  -- bind all values and get the query results, in one round trip after the
+  -- first call; the results are only fetched if all binds succeeded
+  basex_client.q_bind_results(v_qyid,
+                              basex_string_list('$name', '$from', '$to'),
+                              basex_clob_list('number', '1', '10'),
+                              basex_string_list(null, 'xs:integer', 'xs:integer'),
+                              v_outp);
+  dbms_output.put_line(v_outp);
+
+  -- close query
+  basex_client.q_close(v_qyid);
+  
+  -- close session
+  basex_client.close_session();
+end;
+/
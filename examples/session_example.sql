@@ -0,0 +1,29 @@
+-- session_example.sql
+set serverout on
+declare
+  v_sess1 number;
+  v_sess2 number;
+  v_outp  clob;
+begin
+  -- create two sessions
+  v_sess1 := basex_session.open_session('localhost', 1984, 'admin', 'admin');
+  v_sess2 := basex_session.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- initialize output clobs
+  dbms_lob.createTemporary(v_outp, true);
+
+  -- perform commands in both sessions
+  basex_session.bx_execute(v_sess1, 'create db DB1', v_outp);
+  dbms_output.put_line(basex_session.bx_info(v_sess1));
+  basex_session.bx_execute(v_sess2, 'create db DB2', v_outp);
+  dbms_output.put_line(basex_session.bx_info(v_sess2));
+
+  -- drop databases
+  basex_session.bx_execute(v_sess1, 'drop db DB1', v_outp);
+  basex_session.bx_execute(v_sess2, 'drop db DB2', v_outp);
+
+  -- close sessions
+  basex_session.close_session(v_sess1);
+  basex_session.close_session(v_sess2);
+end;
+/
@@ -0,0 +1,28 @@
+-- sink_example.sql
+-- create table basex_items (item varchar2(4000), kind number);
+set serverout on
+declare
+  v_inpt  clob;
+  v_qyid  varchar2(25);
+  v_rows  number;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- set the query text
+  v_inpt := 'for $i in 1 to 100000 return <xml>Text { $i }</xml>';
+
+  -- get the query ID
+  v_qyid := basex_client.bx_query(v_inpt);
+
+  -- insert the results 500 rows per batch, commit every 10000 rows
+  v_rows := basex_client.q_sink(v_qyid, 'basex_items', 'item', 'kind', 500, 10000);
+  dbms_output.put_line(v_rows || ' rows inserted.');
+
+  -- close query
+  basex_client.q_close(v_qyid);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
@@ -0,0 +1,37 @@
+-- slow_query_example.sql
+-- needs the basex_slow_queries table from basex_tables.sql
+set serverout on
+declare
+  v_inpt clob;
+  v_qyid varchar2(25);
+  v_outp clob;
+begin
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  -- log executions that take 100 ms or more
+  basex_client.set_slow_query_log(100);
+
+  dbms_lob.createTemporary(v_outp, true);
+  v_inpt := 'declare variable $n external; count(for $i in 1 to $n order by -$i return $i)';
+
+  v_qyid := basex_client.bx_query(v_inpt);
+  basex_client.q_bind(v_qyid, '$n', '5000000', 'xs:integer');
+  basex_client.q_results(v_qyid, v_outp);
+  dbms_output.put_line(v_outp);
+
+  basex_client.q_close(v_qyid);
+  basex_client.set_slow_query_log(-1);
+  basex_client.close_session();
+  commit;
+
+  for r in (select query_hash, variables, evaluating_ms, network_ms, lob_ms, total_ms
+              from basex_slow_queries
+             order by logged desc
+             fetch first 5 rows only) loop
+    dbms_output.put_line(r.query_hash || ' ' || r.variables || ': ' || r.total_ms ||
+                         ' ms (evaluating ' || r.evaluating_ms || ', network ' ||
+                         r.network_ms || ', lob ' || r.lob_ms || ')');
+  end loop;
+end;
+/
@@ -0,0 +1,24 @@
+-- transport_example.sql
+set serverout on
+declare
+  v_outp  clob;
+begin
+  -- socket channel transport, no Nagle delay, larger buffers
+  basex_client.set_transport('nio');
+  basex_client.set_socket_options(tcpNoDelay    => true,
+                                  sendBuffer    => 262144,
+                                  receiveBuffer => 262144);
+  -- give up on a server that does not answer within 30 seconds
+  basex_client.set_timeouts(connectMs => 2000, readMs => 30000);
+
+  -- create the session
+  basex_client.open_session('localhost', 1984, 'admin', 'admin');
+
+  dbms_lob.createtemporary(v_outp, true);
+  basex_client.bx_execute('xquery 1 to 10', v_outp);
+  dbms_output.put_line(v_outp);
+
+  -- close session
+  basex_client.close_session();
+end;
+/
@@ -0,0 +1,18 @@
+#!/bin/sh
+# Compiles the client and the benchmarks and runs the benchmark harness,
+# the test server or the load generator. The Oracle JDBC driver is needed
+# to compile the client only, none of them uses a database.
+#
+# usage: OJDBC=/path/to/ojdbc6.jar java/bench/run.sh [Bench|TestServer|LoadGenerator] [options]
+set -e
+cd "$(dirname "$0")/.."
+OJDBC=${OJDBC:-$ORACLE_HOME/jdbc/lib/ojdbc6.jar}
+MAIN=Bench
+case "$1" in
+  Bench|TestServer|LoadGenerator) MAIN=$1; shift;;
+esac
+OUT=bench/classes
+rm -rf $OUT
+mkdir -p $OUT
+javac -encoding UTF-8 -cp "$OJDBC" -d $OUT $(find src bench/src -name '*.java')
+java -cp "$OUT:$OJDBC" com.zadean.oracle.basex.$MAIN "$@"
@@ -0,0 +1,116 @@
+package com.zadean.oracle.basex;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Benchmark harness for the client hot paths, runnable offline on a plain
+ * JDK. Each benchmark is warmed up and then measured in timed iterations;
+ * the report shows operations and payload megabytes per second with their
+ * standard deviation over the iterations.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.zadean.oracle.basex.Bench [-w warmups] [-i iterations] [-t millis] [regex]
+ * </pre>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+public final class Bench {
+
+	/** Consumes the benchmark results. */
+	static volatile long sink;
+
+	/** Not instantiable. */
+	private Bench() {
+	}
+
+	/**
+	 * Runs all benchmarks whose name matches the optional pattern.
+	 *
+	 * @param args
+	 *            Options and pattern.
+	 * @throws Exception
+	 */
+	public static void main(final String[] args) throws Exception {
+		int warmups = 3, iterations = 5;
+		long millis = 1000;
+		Pattern filter = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("-w".equals(args[i]))
+				warmups = Integer.parseInt(args[++i]);
+			else if ("-i".equals(args[i]))
+				iterations = Integer.parseInt(args[++i]);
+			else if ("-t".equals(args[i]))
+				millis = Long.parseLong(args[++i]);
+			else
+				filter = Pattern.compile(args[i]);
+		}
+
+		final ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		CodecBench.addTo(benchmarks);
+		CursorBench.addTo(benchmarks);
+		HandshakeBench.addTo(benchmarks);
+
+		System.out.println(String.format(Locale.ROOT, "%-56s %14s %10s %10s %8s", "benchmark", "ops/s", "+-",
+				"MB/s", "+-"));
+		for (final Benchmark b : benchmarks) {
+			if (filter != null && !filter.matcher(b.name).find())
+				continue;
+			b.setup();
+			for (int i = 0; i < warmups; i++)
+				iteration(b, millis);
+			final double[] rates = new double[iterations];
+			for (int i = 0; i < iterations; i++)
+				rates[i] = iteration(b, millis);
+			report(b, rates);
+		}
+	}
+
+	/**
+	 * Runs the benchmark for the given time.
+	 *
+	 * @param b
+	 *            The benchmark.
+	 * @param millis
+	 *            Duration.
+	 * @return operations per second.
+	 * @throws Exception
+	 */
+	private static double iteration(final Benchmark b, final long millis) throws Exception {
+		long value = 0, ops = 0;
+		final long start = System.nanoTime();
+		final long end = start + millis * 1000000L;
+		long now;
+		do {
+			value += b.run();
+			ops++;
+		} while ((now = System.nanoTime()) < end);
+		sink += value;
+		return ops * 1e9 / (now - start);
+	}
+
+	/**
+	 * Prints the mean and standard deviation of the measured iterations.
+	 *
+	 * @param b
+	 *            The benchmark.
+	 * @param rates
+	 *            Operations per second of each iteration.
+	 */
+	private static void report(final Benchmark b, final double[] rates) {
+		double mean = 0;
+		for (final double r : rates)
+			mean += r;
+		mean /= rates.length;
+		double var = 0;
+		for (final double r : rates)
+			var += (r - mean) * (r - mean);
+		final double dev = rates.length > 1 ? Math.sqrt(var / (rates.length - 1)) : 0;
+		final double mb = b.bytes / (1024.0 * 1024.0);
+		System.out.println(String.format(Locale.ROOT, "%-56s %14.1f %10.1f %10.1f %8.1f", b.name, mean, dev,
+				mean * mb, dev * mb));
+	}
+}
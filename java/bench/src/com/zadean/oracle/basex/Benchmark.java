@@ -0,0 +1,43 @@
+package com.zadean.oracle.basex;
+
+/**
+ * One measured operation of the benchmark harness. {@link Bench} calls
+ * {@link #setup()} once and then {@link #run()} repeatedly.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+abstract class Benchmark {
+
+	/** Name shown in the report, also matched by the filter. */
+	final String name;
+	/** Payload bytes handled by one operation, 0 if not meaningful. */
+	final long bytes;
+
+	/**
+	 * @param name
+	 *            Name shown in the report.
+	 * @param bytes
+	 *            Payload bytes handled by one operation.
+	 */
+	Benchmark(final String name, final long bytes) {
+		this.name = name;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Prepares the payload. Not measured.
+	 *
+	 * @throws Exception
+	 */
+	void setup() throws Exception {
+	}
+
+	/**
+	 * Runs one operation.
+	 *
+	 * @return a value depending on the work done, so it cannot be optimized
+	 *         away.
+	 * @throws Exception
+	 */
+	abstract long run() throws Exception;
+}
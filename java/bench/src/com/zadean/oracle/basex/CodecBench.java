@@ -0,0 +1,95 @@
+package com.zadean.oracle.basex;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Escaping and unescaping in {@link WireCodec}, as used by
+ * <code>write</code>, <code>writeBinary</code>, <code>readLine</code> and
+ * <code>readBinary</code> of the session. LOBs are replaced by in-memory
+ * stubs, the socket by in-memory streams.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class CodecBench {
+
+	/** Not instantiable. */
+	private CodecBench() {
+	}
+
+	/**
+	 * Adds the codec benchmarks for all payload sizes and densities.
+	 *
+	 * @param benchmarks
+	 *            The list to add to.
+	 * @throws Exception
+	 */
+	static void addTo(final List<Benchmark> benchmarks) throws Exception {
+		for (final int size : Payloads.SIZES) {
+			for (final double density : Payloads.DENSITIES) {
+				final String suffix = String.format(Locale.ROOT, "(size=%d, density=%.2f)", size, density);
+				final byte[] data = Payloads.binary(size, density);
+				final String text = Payloads.text(size, density);
+				final byte[] utf8 = text.getBytes(ResultCursor.UTF8);
+
+				benchmarks.add(new Benchmark("codec.writeBinary" + suffix, data.length) {
+					private final MemoryBlob input = new MemoryBlob(data);
+					private final WireCodec codec = new WireCodec(null, Payloads.NULL);
+
+					@Override
+					long run() throws Exception {
+						codec.writeEscaped(input.getBinaryStream());
+						codec.write(0);
+						codec.flush();
+						return input.length();
+					}
+				});
+
+				benchmarks.add(new Benchmark("codec.write" + suffix, utf8.length) {
+					private final MemoryClob input = new MemoryClob(text);
+					private final WireCodec codec = new WireCodec(null, Payloads.NULL);
+
+					@Override
+					long run() throws Exception {
+						codec.writeEscaped(input.getCharacterStream());
+						codec.write(0);
+						codec.flush();
+						return input.length();
+					}
+				});
+
+				benchmarks.add(new Benchmark("codec.readBinary" + suffix, data.length) {
+					private final MemoryBlob output = new MemoryBlob();
+					private WireCodec codec;
+
+					@Override
+					void setup() throws Exception {
+						codec = new WireCodec(new Payloads.Repeating(Payloads.escaped(data)), Payloads.NULL);
+					}
+
+					@Override
+					long run() throws Exception {
+						codec.readEscaped(output.setBinaryStream(1));
+						return output.length();
+					}
+				});
+
+				benchmarks.add(new Benchmark("codec.readLine" + suffix, utf8.length) {
+					private final MemoryClob output = new MemoryClob();
+					private WireCodec codec;
+
+					@Override
+					void setup() throws Exception {
+						codec = new WireCodec(new Payloads.Repeating(Payloads.escaped(utf8)), Payloads.NULL);
+					}
+
+					@Override
+					long run() throws Exception {
+						codec.readEscaped(output.setCharacterStream(1));
+						return output.length();
+					}
+				});
+			}
+		}
+	}
+}
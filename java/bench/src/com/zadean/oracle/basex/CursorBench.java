@@ -0,0 +1,84 @@
+package com.zadean.oracle.basex;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decoding of a <code>QRY_RESULTS</code> response by the cached and the
+ * streaming cursor, the work behind <code>more()</code> and
+ * <code>next()</code>. Every operation decodes one whole response.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class CursorBench {
+
+	/** Numbers of items and item sizes. */
+	private static final int[][] SHAPES = { { 10000, 16 }, { 1000, 1024 }, { 10, 64 * 1024 } };
+
+	/** Not instantiable. */
+	private CursorBench() {
+	}
+
+	/**
+	 * Adds the cursor benchmarks for all result shapes and densities.
+	 *
+	 * @param benchmarks
+	 *            The list to add to.
+	 * @throws Exception
+	 */
+	static void addTo(final List<Benchmark> benchmarks) throws Exception {
+		for (final int[] shape : SHAPES) {
+			for (final double density : Payloads.DENSITIES) {
+				final int items = shape[0];
+				final String suffix = String.format(Locale.ROOT, "(items=%d, size=%d, density=%.2f)", items,
+						shape[1], density);
+				final byte[] item = Payloads.text(shape[1], density).getBytes(ResultCursor.UTF8);
+				final long bytes = (long) items * item.length;
+
+				benchmarks.add(new Benchmark("cursor.cached" + suffix, bytes) {
+					private final MemoryClob output = new MemoryClob();
+					private WireCodec codec;
+
+					@Override
+					void setup() throws Exception {
+						codec = new WireCodec(new Payloads.Repeating(Payloads.results(items, item)), Payloads.NULL);
+					}
+
+					@Override
+					long run() throws Exception {
+						final ResultCursor cursor = new CachedCursor(codec, 0);
+						long n = 0;
+						while (cursor.more()) {
+							output.truncate(0);
+							cursor.next(output.setCharacterStream(1));
+							n += output.length();
+						}
+						return n;
+					}
+				});
+
+				benchmarks.add(new Benchmark("cursor.streaming" + suffix, bytes) {
+					private final MemoryClob output = new MemoryClob();
+					private WireCodec codec;
+
+					@Override
+					void setup() throws Exception {
+						codec = new WireCodec(new Payloads.Repeating(Payloads.results(items, item)), Payloads.NULL);
+					}
+
+					@Override
+					long run() throws Exception {
+						final ResultCursor cursor = new StreamingCursor(codec);
+						long n = 0;
+						while (cursor.more()) {
+							output.truncate(0);
+							cursor.next(output.setCharacterStream(1));
+							n += output.length();
+						}
+						return n;
+					}
+				});
+			}
+		}
+	}
+}
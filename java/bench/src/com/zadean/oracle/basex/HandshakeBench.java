@@ -0,0 +1,33 @@
+package com.zadean.oracle.basex;
+
+import java.util.List;
+
+/**
+ * The MD5 digest of the authentication handshake.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class HandshakeBench {
+
+	/** Not instantiable. */
+	private HandshakeBench() {
+	}
+
+	/**
+	 * Adds the handshake benchmark.
+	 *
+	 * @param benchmarks
+	 *            The list to add to.
+	 */
+	static void addTo(final List<Benchmark> benchmarks) {
+		benchmarks.add(new Benchmark("handshake.md5", 0) {
+			private int nonce;
+
+			@Override
+			long run() {
+				final String code = "admin:BaseX:admin";
+				return Session.md5(Session.md5(code) + nonce++).hashCode();
+			}
+		});
+	}
+}
@@ -0,0 +1,226 @@
+package com.zadean.oracle.basex;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * <p>
+ * End-to-end load generator. Runs ingest, query and fetch workloads through
+ * a client session against a BaseX server or, if no port is given, an
+ * embedded {@link TestServer}, and reports throughput and latency
+ * percentiles per workload.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.zadean.oracle.basex.LoadGenerator [-host h] [-port p] [-user u] [-password p]
+ *     [-nio] [-n operations] [-batch documents] [-depth n] [-doc bytes]
+ *     [-items n] [-size bytes] [-latency millis] [workload...]
+ * </pre>
+ * <p>
+ * The workloads are add (one document per operation), ingest (a pipelined
+ * batch per operation), query (register, execute and close), fetch,
+ * fetch-streaming, fetch-batch and fetch-prefetch (all results of a query
+ * with <code>more()</code>/<code>next()</code>, streamed, in batches, or in
+ * batches read ahead). <code>-nio</code> connects through a {@link ChannelTransport}.
+ * The item options configure the embedded server only.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+public final class LoadGenerator {
+
+	/** Items per call of the batch fetch. */
+	private static final int FETCH_BATCH = 100;
+	/** Items read ahead by the prefetch fetch. */
+	private static final int PREFETCH = 64;
+
+	/** Operations per workload. */
+	private int operations = 1000;
+	/** Documents per pipelined ingest. */
+	private int batch = 100;
+	/** Maximum number of unacknowledged documents. */
+	private int depth = 16;
+	/** Content of every document. */
+	private String document;
+
+	/** Not instantiable from outside. */
+	private LoadGenerator() {
+	}
+
+	/**
+	 * Runs the workloads.
+	 *
+	 * @param args
+	 *            Options and workloads.
+	 * @throws Exception
+	 */
+	public static void main(final String[] args) throws Exception {
+		final LoadGenerator generator = new LoadGenerator();
+		String host = "localhost", user = "admin", password = "admin";
+		int port = 0, docSize = 1024;
+		final SocketOptions options = new SocketOptions();
+		final ArrayList<String> workloads = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			final String arg = args[i];
+			if ("-host".equals(arg))
+				host = args[++i];
+			else if ("-port".equals(arg))
+				port = Integer.parseInt(args[++i]);
+			else if ("-user".equals(arg))
+				user = args[++i];
+			else if ("-password".equals(arg))
+				password = args[++i];
+			else if ("-nio".equals(arg))
+				options.nio = true;
+			else if ("-n".equals(arg))
+				generator.operations = Integer.parseInt(args[++i]);
+			else if ("-batch".equals(arg))
+				generator.batch = Integer.parseInt(args[++i]);
+			else if ("-depth".equals(arg))
+				generator.depth = Integer.parseInt(args[++i]);
+			else if ("-doc".equals(arg))
+				docSize = Integer.parseInt(args[++i]);
+			else if (arg.startsWith("-"))
+				i++;
+			else
+				workloads.add(arg);
+		}
+		if (workloads.isEmpty())
+			workloads.addAll(Arrays.asList("add", "ingest", "query", "fetch", "fetch-streaming", "fetch-prefetch",
+					"fetch-batch"));
+
+		final StringBuilder sb = new StringBuilder("<doc>");
+		while (sb.length() < docSize - 6)
+			sb.append((char) ('a' + sb.length() % 26));
+		generator.document = sb.append("</doc>").toString();
+
+		TestServer server = null;
+		if (port == 0) {
+			server = new TestServer(0);
+			server.configure(args);
+			server.start();
+			port = server.port();
+			System.out.println("Embedded test server: " + server.items + " items of " + server.itemSize + " bytes, "
+					+ server.latency + " ms latency");
+		}
+		System.out.println(String.format(Locale.ROOT, "%-16s %8s %12s %12s %10s %10s %10s", "workload", "ops",
+				"ops/s", "items/s", "p50 ms", "p95 ms", "p99 ms"));
+		final Session session = new Session(1, host, port, user, password, options);
+		try {
+			for (final String workload : workloads)
+				generator.run(session, workload);
+		} finally {
+			session.close();
+			if (server != null)
+				server.close();
+		}
+	}
+
+	/**
+	 * Runs one workload and prints its report.
+	 *
+	 * @param session
+	 *            The session.
+	 * @param workload
+	 *            Name of the workload.
+	 * @throws Exception
+	 */
+	private void run(final Session session, final String workload) throws Exception {
+		final MemoryClob output = new MemoryClob();
+		final MemoryClob text = new MemoryClob(document);
+		final MemoryClob query = new MemoryClob("for $i in 1 to 10 return <item>{ $i }</item>");
+		final String queryId = session.query(query);
+		session.streaming = "fetch-streaming".equals(workload);
+		session.prefetch = "fetch-prefetch".equals(workload) ? PREFETCH : 0;
+
+		final long[] latencies = new long[operations];
+		long items = 0;
+		final long start = System.nanoTime();
+		for (int i = 0; i < operations; i++) {
+			final long t = System.nanoTime();
+			if ("add".equals(workload)) {
+				session.add("add/" + i + ".xml", text);
+				items++;
+			} else if ("ingest".equals(workload)) {
+				items += session.ingest("add", documents("ingest/" + i + '/'), depth, false).documents;
+			} else if ("query".equals(workload)) {
+				final String id = session.query(query);
+				session.results(id, output, false);
+				session.close(id);
+				items++;
+			} else if ("fetch".equals(workload) || "fetch-streaming".equals(workload)) {
+				while (session.more(queryId)) {
+					session.next(queryId, output);
+					items++;
+				}
+			} else if ("fetch-batch".equals(workload) || "fetch-prefetch".equals(workload)) {
+				int n;
+				do {
+					n = session.nextBatch(queryId, FETCH_BATCH).size();
+					items += n;
+				} while (n == FETCH_BATCH);
+			} else {
+				throw new IllegalArgumentException("Unknown workload: " + workload);
+			}
+			latencies[i] = System.nanoTime() - t;
+		}
+		final double seconds = (System.nanoTime() - start) / 1e9;
+		session.streaming = false;
+		session.prefetch = 0;
+		session.close(queryId);
+
+		Arrays.sort(latencies);
+		System.out.println(String.format(Locale.ROOT, "%-16s %8d %12.1f %12.1f %10.3f %10.3f %10.3f", workload,
+				operations, operations / seconds, items / seconds, percentile(latencies, 0.50),
+				percentile(latencies, 0.95), percentile(latencies, 0.99)));
+	}
+
+	/**
+	 * @param prefix
+	 *            Path prefix of the documents.
+	 * @return one batch of documents.
+	 */
+	private Documents documents(final String prefix) {
+		return new Documents() {
+			private int pos;
+
+			@Override
+			boolean next() {
+				return pos++ < batch;
+			}
+
+			@Override
+			String path() {
+				return prefix + pos + ".xml";
+			}
+
+			@Override
+			Reader text() {
+				return new StringReader(document);
+			}
+
+			@Override
+			InputStream binary() {
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * @param sorted
+	 *            Sorted latencies in nanoseconds.
+	 * @param fraction
+	 *            The percentile as a fraction.
+	 * @return the latency at the percentile in milliseconds.
+	 */
+	private static double percentile(final long[] sorted, final double fraction) {
+		if (sorted.length == 0)
+			return 0;
+		final int i = (int) Math.ceil(sorted.length * fraction) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+	}
+}
@@ -0,0 +1,125 @@
+package com.zadean.oracle.basex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+
+/**
+ * In-memory {@link Blob} standing in for a database LOB in benchmarks and
+ * the test server driver.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class MemoryBlob implements Blob {
+
+	/** The content. */
+	private final Content content = new Content();
+
+	/**
+	 * Creates an empty BLOB.
+	 */
+	MemoryBlob() {
+	}
+
+	/**
+	 * @param value
+	 *            Initial content.
+	 */
+	MemoryBlob(final byte[] value) {
+		content.write(value, 0, value.length);
+	}
+
+	@Override
+	public long length() {
+		return content.size();
+	}
+
+	@Override
+	public byte[] getBytes(final long pos, final int length) {
+		final int start = (int) pos - 1;
+		final int n = Math.max(0, Math.min(length, content.size() - start));
+		final byte[] b = new byte[n];
+		System.arraycopy(content.buffer(), start, b, 0, n);
+		return b;
+	}
+
+	@Override
+	public InputStream getBinaryStream() {
+		return new ByteArrayInputStream(content.buffer(), 0, content.size());
+	}
+
+	@Override
+	public InputStream getBinaryStream(final long pos, final long length) {
+		return new ByteArrayInputStream(getBytes(pos, (int) length));
+	}
+
+	@Override
+	public long position(final byte[] pattern, final long start) {
+		final byte[] b = content.buffer();
+		outer: for (int i = (int) start - 1; i <= content.size() - pattern.length; i++) {
+			for (int j = 0; j < pattern.length; j++) {
+				if (b[i + j] != pattern[j])
+					continue outer;
+			}
+			return i + 1;
+		}
+		return -1;
+	}
+
+	@Override
+	public long position(final Blob pattern, final long start) throws SQLException {
+		return position(pattern.getBytes(1, (int) pattern.length()), start);
+	}
+
+	@Override
+	public int setBytes(final long pos, final byte[] bytes) {
+		return setBytes(pos, bytes, 0, bytes.length);
+	}
+
+	@Override
+	public int setBytes(final long pos, final byte[] bytes, final int offset, final int len) {
+		truncate(pos - 1);
+		content.write(bytes, offset, len);
+		return len;
+	}
+
+	@Override
+	public OutputStream setBinaryStream(final long pos) {
+		truncate(pos - 1);
+		return content;
+	}
+
+	@Override
+	public void truncate(final long len) {
+		content.truncate((int) len);
+	}
+
+	@Override
+	public void free() {
+		content.reset();
+	}
+
+	/**
+	 * Byte array stream that exposes its buffer, so reading does not copy.
+	 */
+	private static final class Content extends ByteArrayOutputStream {
+		/**
+		 * @return the internal buffer, valid up to {@link #size()}.
+		 */
+		byte[] buffer() {
+			return buf;
+		}
+
+		/**
+		 * @param len
+		 *            New size, if smaller than the current one.
+		 */
+		void truncate(final int len) {
+			if (len < count)
+				count = len;
+		}
+	}
+}
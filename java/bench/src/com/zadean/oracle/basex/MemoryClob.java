@@ -0,0 +1,131 @@
+package com.zadean.oracle.basex;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+/**
+ * In-memory {@link Clob} standing in for a database LOB in benchmarks and
+ * the test server driver.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class MemoryClob implements Clob {
+
+	/** The content. */
+	private final StringBuilder content = new StringBuilder();
+
+	/**
+	 * Creates an empty CLOB.
+	 */
+	MemoryClob() {
+	}
+
+	/**
+	 * @param value
+	 *            Initial content.
+	 */
+	MemoryClob(final String value) {
+		content.append(value);
+	}
+
+	@Override
+	public long length() {
+		return content.length();
+	}
+
+	@Override
+	public String getSubString(final long pos, final int length) {
+		final int start = (int) pos - 1;
+		return content.substring(start, Math.min(content.length(), start + length));
+	}
+
+	@Override
+	public Reader getCharacterStream() {
+		return new StringReader(content.toString());
+	}
+
+	@Override
+	public Reader getCharacterStream(final long pos, final long length) {
+		return new StringReader(getSubString(pos, (int) length));
+	}
+
+	@Override
+	public InputStream getAsciiStream() {
+		return new ByteArrayInputStream(content.toString().getBytes());
+	}
+
+	@Override
+	public long position(final String searchstr, final long start) {
+		final int i = content.indexOf(searchstr, (int) start - 1);
+		return i < 0 ? -1 : i + 1;
+	}
+
+	@Override
+	public long position(final Clob searchstr, final long start) throws SQLException {
+		return position(searchstr.getSubString(1, (int) searchstr.length()), start);
+	}
+
+	@Override
+	public int setString(final long pos, final String str) {
+		truncate(pos - 1);
+		content.append(str);
+		return str.length();
+	}
+
+	@Override
+	public int setString(final long pos, final String str, final int offset, final int len) {
+		return setString(pos, str.substring(offset, offset + len));
+	}
+
+	@Override
+	public OutputStream setAsciiStream(final long pos) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public Writer setCharacterStream(final long pos) {
+		truncate(pos - 1);
+		return new Writer() {
+			@Override
+			public void write(final char[] cbuf, final int off, final int len) {
+				content.append(cbuf, off, len);
+			}
+
+			@Override
+			public void write(final String str) {
+				content.append(str);
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	@Override
+	public void truncate(final long len) {
+		if (len < content.length())
+			content.setLength((int) len);
+	}
+
+	@Override
+	public void free() {
+		content.setLength(0);
+	}
+
+	@Override
+	public String toString() {
+		return content.toString();
+	}
+}
@@ -0,0 +1,155 @@
+package com.zadean.oracle.basex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Payloads and in-memory streams for the benchmarks. All payloads are
+ * generated from a fixed seed, so runs are reproducible.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class Payloads {
+
+	/** Payload sizes in bytes. */
+	static final int[] SIZES = { 64, 4 * 1024, 1024 * 1024 };
+	/** Fractions of 0x00 and 0xFF bytes. */
+	static final double[] DENSITIES = { 0, 0.01, 0.5 };
+
+	/** Discards everything written. */
+	static final OutputStream NULL = new OutputStream() {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	};
+
+	/** Not instantiable. */
+	private Payloads() {
+	}
+
+	/**
+	 * Creates binary data.
+	 *
+	 * @param size
+	 *            Number of bytes.
+	 * @param density
+	 *            Fraction of bytes that are 0x00 or 0xFF.
+	 * @return the data.
+	 */
+	static byte[] binary(final int size, final double density) {
+		final Random random = new Random(size);
+		final byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			if (random.nextDouble() < density)
+				data[i] = (byte) (random.nextBoolean() ? 0x00 : 0xFF);
+			else
+				data[i] = (byte) (1 + random.nextInt(0xFE));
+		}
+		return data;
+	}
+
+	/**
+	 * Creates text, mostly ASCII with some two-byte characters. In UTF-8 only
+	 * the character U+0000 needs escaping, 0xFF does not occur.
+	 *
+	 * @param size
+	 *            Number of characters.
+	 * @param density
+	 *            Fraction of U+0000 characters.
+	 * @return the text.
+	 */
+	static String text(final int size, final double density) {
+		final Random random = new Random(size);
+		final StringBuilder sb = new StringBuilder(size);
+		for (int i = 0; i < size; i++) {
+			if (random.nextDouble() < density)
+				sb.append('\0');
+			else if (random.nextInt(20) == 0)
+				sb.append((char) (0xC0 + random.nextInt(0x40)));
+			else
+				sb.append((char) ('a' + random.nextInt(26)));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Encodes data as it is sent on the wire: escaped and terminated.
+	 *
+	 * @param data
+	 *            The data.
+	 * @return the encoded data.
+	 * @throws IOException
+	 */
+	static byte[] escaped(final byte[] data) throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		final WireCodec codec = new WireCodec(null, os);
+		codec.writeEscaped(data, 0, data.length);
+		codec.write(0);
+		codec.flush();
+		return os.toByteArray();
+	}
+
+	/**
+	 * Encodes a <code>QRY_RESULTS</code> response.
+	 *
+	 * @param items
+	 *            Number of items.
+	 * @param item
+	 *            Content of every item.
+	 * @return the response.
+	 * @throws IOException
+	 */
+	static byte[] results(final int items, final byte[] item) throws IOException {
+		final byte[] encoded = escaped(item);
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		for (int i = 0; i < items; i++) {
+			// type byte, any non-zero value
+			os.write(41);
+			os.write(encoded);
+		}
+		os.write(0);
+		os.write(0);
+		return os.toByteArray();
+	}
+
+	/**
+	 * Endless input stream repeating the same bytes, so a codec can read the
+	 * same message over and over.
+	 */
+	static final class Repeating extends InputStream {
+		/** The repeated bytes. */
+		private final byte[] data;
+		/** Next position. */
+		private int pos;
+
+		/**
+		 * @param data
+		 *            The repeated bytes.
+		 */
+		Repeating(final byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public int read() {
+			final int b = data[pos] & 0xFF;
+			pos = (pos + 1) % data.length;
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			final int n = Math.min(len, data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos = (pos + n) % data.length;
+			return n;
+		}
+	}
+}
@@ -0,0 +1,452 @@
+package com.zadean.oracle.basex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>
+ * Local stand-in for a BaseX server, speaking the part of the client/server
+ * protocol the client uses: the handshake, text commands (retrieve, delete
+ * and exit are understood, everything else is echoed), create, add,
+ * replace, store and the query commands. Documents are kept in memory.
+ * Every query returns the same configurable number and size of items.
+ * </p>
+ * <p>
+ * An artificial latency delays every answer by the given time after its
+ * request arrived, like a network round trip, so pipelined requests still
+ * overlap.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.zadean.oracle.basex.TestServer [-p port] [-items n] [-size bytes] [-latency millis]
+ * </pre>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+public final class TestServer implements Runnable {
+
+	/** Server socket. */
+	private final ServerSocket server;
+	/** Number of items per query result. */
+	volatile int items = 10;
+	/** Size of each item in bytes. */
+	volatile int itemSize = 64;
+	/** Delay of each answer in milliseconds. */
+	volatile int latency;
+	/** Stored documents and resources by path. */
+	private final Map<String, byte[]> resources = Collections.synchronizedMap(new HashMap<String, byte[]>());
+
+	/**
+	 * Opens the server socket.
+	 *
+	 * @param port
+	 *            Port, 0 for any free one.
+	 * @throws IOException
+	 */
+	TestServer(final int port) throws IOException {
+		server = new ServerSocket(port);
+	}
+
+	/**
+	 * Starts the server.
+	 *
+	 * @param args
+	 *            Options.
+	 * @throws IOException
+	 */
+	public static void main(final String[] args) throws IOException {
+		int port = 1984;
+		final TestServer server;
+		for (int i = 0; i < args.length; i += 2) {
+			if ("-p".equals(args[i]))
+				port = Integer.parseInt(args[i + 1]);
+		}
+		server = new TestServer(port);
+		server.configure(args);
+		System.out.println("Listening on port " + server.port() + ", " + server.items + " items of "
+				+ server.itemSize + " bytes, " + server.latency + " ms latency");
+		server.run();
+	}
+
+	/**
+	 * Applies the <code>-items</code>, <code>-size</code> and
+	 * <code>-latency</code> options, ignoring all others.
+	 *
+	 * @param args
+	 *            Options.
+	 */
+	void configure(final String[] args) {
+		for (int i = 0; i + 1 < args.length; i++) {
+			if ("-items".equals(args[i]))
+				items = Integer.parseInt(args[++i]);
+			else if ("-size".equals(args[i]))
+				itemSize = Integer.parseInt(args[++i]);
+			else if ("-latency".equals(args[i]))
+				latency = Integer.parseInt(args[++i]);
+		}
+	}
+
+	/**
+	 * @return the port the server listens on.
+	 */
+	int port() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections in a background thread.
+	 */
+	void start() {
+		daemon(this).start();
+	}
+
+	/**
+	 * Stops accepting connections.
+	 *
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		server.close();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true)
+				daemon(new Connection(server.accept())).start();
+		} catch (IOException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * @param task
+	 *            What to run.
+	 * @return a daemon thread.
+	 */
+	private static Thread daemon(final Runnable task) {
+		final Thread thread = new Thread(task);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * One client connection. Requests are decoded with the client's own
+	 * {@link WireCodec}; each answer is collected and then sent, after the
+	 * latency if there is one.
+	 */
+	private final class Connection implements Runnable {
+		/** The socket. */
+		private final Socket socket;
+		/** Collects the current answer. */
+		private final ByteArrayOutputStream answer = new ByteArrayOutputStream();
+		/** Codec on the socket input and the answer buffer. */
+		private final WireCodec codec;
+		/** Answers waiting for their latency to pass. */
+		private final LinkedBlockingQueue<Answer> delayed = new LinkedBlockingQueue<Answer>();
+		/** Registered queries by ID. */
+		private final HashMap<String, String> queries = new HashMap<String, String>();
+		/** Last query ID. */
+		private int lastQuery;
+		/** Arrival time of the current request in nanoseconds. */
+		private long arrived;
+		/** Error of the current request. */
+		private String error;
+
+		/**
+		 * @param socket
+		 *            The client socket.
+		 * @throws IOException
+		 */
+		Connection(final Socket socket) throws IOException {
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			codec = new WireCodec(socket.getInputStream(), answer);
+		}
+
+		@Override
+		public void run() {
+			final Thread sender = daemon(new Runnable() {
+				@Override
+				public void run() {
+					send();
+				}
+			});
+			try {
+				sender.start();
+				// digest authentication, every user is accepted
+				codec.writeString("BaseX:" + System.nanoTime());
+				answer();
+				codec.readString();
+				codec.readString();
+				codec.write(0);
+				answer();
+				for (int code; (code = codec.read()) != -1;) {
+					arrived = System.nanoTime();
+					if (!request(code))
+						break;
+					answer();
+				}
+			} catch (IOException e) {
+				// connection lost
+			} finally {
+				delayed.add(new Answer(0, null));
+			}
+		}
+
+		/**
+		 * Handles one request.
+		 *
+		 * @param code
+		 *            The first byte, a command code or the first character
+		 *            of a text command.
+		 * @return false after exit.
+		 * @throws IOException
+		 */
+		private boolean request(final int code) throws IOException {
+			switch (code) {
+			case 0: // CMD_QUERY
+				final String id = String.valueOf(++lastQuery);
+				queries.put(id, codec.readString());
+				codec.writeString(id);
+				codec.write(0);
+				break;
+			case 2: // QRY_CLOSE
+				queries.remove(codec.readString());
+				codec.writeString("");
+				codec.write(0);
+				break;
+			case 3: // QRY_BIND
+				query();
+				codec.readString();
+				codec.readEscaped(Payloads.NULL);
+				codec.readString();
+				ok("");
+				break;
+			case 4: // QRY_RESULTS
+				if (query() != null) {
+					final byte[] item = item();
+					for (int i = 0; i < items; i++) {
+						codec.write(41);
+						codec.writeEscaped(item, 0, item.length);
+						codec.write(0);
+					}
+				}
+				ok(null);
+				break;
+			case 5: // QRY_EXEC
+				if (query() != null) {
+					final byte[] item = item();
+					for (int i = 0; i < items; i++)
+						codec.writeEscaped(item, 0, item.length);
+				}
+				ok("");
+				break;
+			case 6: // QRY_INFO
+				final String query = query();
+				ok(query == null ? "" : "Query: " + query);
+				break;
+			case 7: // QRY_OPTIONS
+				query();
+				ok("");
+				break;
+			case 14: // QRY_CONTEXT
+				query();
+				codec.readEscaped(Payloads.NULL);
+				codec.readString();
+				ok("");
+				break;
+			case 8: // CMD_CREATE
+				final String name = codec.readString();
+				codec.readEscaped(Payloads.NULL);
+				codec.writeString("Database '" + name + "' created.");
+				codec.write(0);
+				break;
+			case 9: // CMD_ADD
+			case 12: // CMD_REPLACE
+			case 13: // CMD_STORE
+				final String path = codec.readString();
+				final ByteArrayOutputStream content = new ByteArrayOutputStream();
+				codec.readEscaped(content);
+				resources.put(path, content.toByteArray());
+				codec.writeString("Resource '" + path + "' stored.");
+				codec.write(0);
+				break;
+			default:
+				return command((char) code + codec.readString());
+			}
+			return true;
+		}
+
+		/**
+		 * Handles a text command.
+		 *
+		 * @param command
+		 *            The command.
+		 * @return false after exit.
+		 * @throws IOException
+		 */
+		private boolean command(final String command) throws IOException {
+			if ("exit".equals(command))
+				return false;
+			byte[] result = new byte[0];
+			String info = "Command executed.";
+			boolean ok = true;
+			if (command.startsWith("retrieve ")) {
+				result = resources.get(command.substring(9));
+				if (result == null) {
+					result = new byte[0];
+					info = "Resource not found.";
+					ok = false;
+				}
+			} else if (command.startsWith("delete ")) {
+				final String path = command.substring(7);
+				int deleted = 0;
+				synchronized (resources) {
+					for (final String p : resources.keySet().toArray(new String[0])) {
+						if (p.startsWith(path)) {
+							resources.remove(p);
+							deleted++;
+						}
+					}
+				}
+				info = deleted + " resource(s) deleted.";
+			} else {
+				result = command.getBytes(ResultCursor.UTF8);
+			}
+			codec.writeEscaped(result, 0, result.length);
+			codec.write(0);
+			codec.writeString(info);
+			codec.write(ok ? 0 : 1);
+			return true;
+		}
+
+		/**
+		 * Reads a query ID. An unknown ID is remembered as the error of the
+		 * current request.
+		 *
+		 * @return the query, or null if unknown.
+		 * @throws IOException
+		 */
+		private String query() throws IOException {
+			final String id = codec.readString();
+			final String query = queries.get(id);
+			if (query == null)
+				error = "Unknown query " + id;
+			return query;
+		}
+
+		/**
+		 * Ends a query answer with an optional string, the success flag and
+		 * the error if there is one.
+		 *
+		 * @param string
+		 *            String before the flag, or null for none.
+		 * @throws IOException
+		 */
+		private void ok(final String string) throws IOException {
+			if (string != null)
+				codec.writeString(string);
+			else
+				codec.write(0);
+			if (error == null) {
+				codec.write(0);
+			} else {
+				codec.write(1);
+				codec.writeString(error);
+				error = null;
+			}
+		}
+
+		/**
+		 * @return the content of every result item.
+		 * @throws IOException
+		 */
+		private byte[] item() throws IOException {
+			final StringBuilder sb = new StringBuilder(itemSize);
+			for (int i = 0; i < itemSize; i++)
+				sb.append((char) ('a' + i % 26));
+			return sb.toString().getBytes(ResultCursor.UTF8);
+		}
+
+		/**
+		 * Sends the collected answer now or hands it to the sender.
+		 *
+		 * @throws IOException
+		 */
+		private void answer() throws IOException {
+			codec.flush();
+			final byte[] bytes = answer.toByteArray();
+			answer.reset();
+			if (latency <= 0)
+				write(bytes);
+			else
+				delayed.add(new Answer(arrived + latency * 1000000L, bytes));
+		}
+
+		/**
+		 * Sends the delayed answers when they are due.
+		 */
+		private void send() {
+			try {
+				while (true) {
+					final Answer next = delayed.take();
+					if (next.bytes == null)
+						break;
+					final long wait = next.due - System.nanoTime();
+					if (wait > 0)
+						Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+					write(next.bytes);
+				}
+			} catch (Exception e) {
+				// connection lost
+			}
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+
+		/**
+		 * @param bytes
+		 *            Bytes to send.
+		 * @throws IOException
+		 */
+		private void write(final byte[] bytes) throws IOException {
+			synchronized (socket) {
+				final OutputStream out = socket.getOutputStream();
+				out.write(bytes);
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * An answer and the time it is due.
+	 */
+	private static final class Answer {
+		/** Due time in nanoseconds. */
+		final long due;
+		/** The answer, null to stop the sender. */
+		final byte[] bytes;
+
+		/**
+		 * @param due
+		 *            Due time in nanoseconds.
+		 * @param bytes
+		 *            The answer.
+		 */
+		Answer(final long due, final byte[] bytes) {
+			this.due = due;
+			this.bytes = bytes;
+		}
+	}
+}
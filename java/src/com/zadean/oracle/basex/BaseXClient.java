@@ -1,770 +1,2408 @@
-package com.zadean.oracle.basex;
-
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.sql.Blob;
-import java.sql.Clob;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-
-/**
- * <p>
- * Java <a href="http://basex.org/">BaseX</a> client for use in the Oracle JVM.
- * Roughly based on BaseXClient in the BaseX <a href=
- * "https://github.com/BaseXdb/basex/tree/master/basex-examples/src/main/java/org/basex/examples/api">
- * repository</a>.
- * </p>
- * <p>
- * The static implementation is a 'must' for the JVM. The single class imports
- * are to keep down the footprint in the database. LOB's should be initialized
- * in the DB before they are used; otherwise NullPointerException. Currently
- * (11.2), the Oracle JVM uses the Java 1.6 standard libraries.
- * </p>
- * 
- * @author Zachary N. Dean <contact[at]zadean[dot]com>
- */
-public class BaseXClient {
-
-	/** The encoding for all character streams. */
-	private static final String UTF8 = "UTF-8";
-
-	/** The socket being used by all calls. */
-	private static Socket socket;
-	/** Output stream. */
-	private static OutputStream socketOutputStream;
-	/** Input stream (buffered). */
-	private static BufferedInputStream socketInputStream;
-
-	/** Info string */
-	private static String info;
-	/** Query result cache */
-	private static HashMap<String, ArrayList<byte[]>> cache = new HashMap<String, ArrayList<byte[]>>();
-	/** Query current position cache */
-	private static HashMap<String, Integer> cachePos = new HashMap<String, Integer>();
-
-	// commands
-	private static final char CMD_QUERY = 0;
-	private static final char CMD_CREATE = 8;
-	private static final char CMD_ADD = 9;
-	private static final char CMD_REPLACE = 12;
-	private static final char CMD_STORE = 13;
-	// query commands
-	private static final char QRY_CLOSE = 2;
-	private static final char QRY_BIND = 3;
-	private static final char QRY_RESULTS = 4;
-	private static final char QRY_EXEC = 5;
-	private static final char QRY_INFO = 6;
-	private static final char QRY_OPTIONS = 7;
-	private static final char QRY_CONTEXT = 14;
-
-	// private static final char QRY_UPDATING = 30;
-	// private static final char QRY_FULL = 31;
-
-	/**
-	 * Creates a client session with the given credentials. If there is already
-	 * an open session, it will be closed and a new session created.
-	 * 
-	 * @param host
-	 *            Host
-	 * @param port
-	 *            Port
-	 * @param username
-	 *            User
-	 * @param password
-	 *            Password
-	 * @throws IOException
-	 *             Access denied, no server
-	 */
-	public static void open(final String host, final int port, final String username, final String password)
-			throws IOException {
-		// close any open socket
-		if (!isClosed()) {
-			close();
-		}
-		socket = new Socket();
-		socket.connect(new InetSocketAddress(host, port), 5000);
-		socketInputStream = new BufferedInputStream(socket.getInputStream());
-		socketOutputStream = socket.getOutputStream();
-
-		// receive server response
-		final String[] response = readLine().split(":");
-		final String code, nonce;
-		if (response.length > 1) {
-			// support for digest authentication
-			code = username + ':' + response[0] + ':' + password;
-			nonce = response[1];
-		} else {
-			// support for cram-md5 (Version < 8.0)
-			code = password;
-			nonce = response[0];
-		}
-
-		writeLine(username);
-		writeLine(md5(md5(code) + nonce));
-
-		// receive success flag
-		if (!ok())
-			throw new IOException("Access denied.");
-	}
-
-	/**
-	 * Closes an open session. Attempts to neatly close the session on the
-	 * server, closes the socket and frees static variables to avoid resource
-	 * leaks.
-	 */
-	public static void close() {
-		try {
-			writeLine("exit");
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		try {
-			socket.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		socket = null;
-		socketInputStream = null;
-		socketOutputStream = null;
-	}
-
-	/**
-	 * Executes a command and returns the result. Sets the
-	 * {@link BaseXClient#info()} value.
-	 * 
-	 * @param command
-	 *            The command to execute.
-	 * @param output
-	 *            The results of the command.
-	 * @throws IOException
-	 * @throws SQLException
-	 */
-	public static void execute(final String command, Clob output) throws IOException, SQLException {
-		check();
-		// just in case the LOB has been reused
-		output.truncate(0);
-		writeLine(command);
-		readLine(output.setAsciiStream(1));
-		info = readLine();
-		if (!ok())
-			throw new IOException(info);
-	}
-
-	/**
-	 * Returns the information string for the last command run that sets it.
-	 * 
-	 * @return The info string.
-	 */
-	public static String info() {
-		return info;
-	}
-
-	/**
-	 * Creates a database. Sets the {@link BaseXClient#info()} value.
-	 * 
-	 * @param name
-	 *            Database name.
-	 * @param input
-	 *            XML input to initialize the database.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void create(final String name, Clob input) throws IOException, SQLException {
-		check();
-		write(CMD_CREATE);
-		writeLine(name);
-		write(input.getAsciiStream());
-		writeLine();
-		info = readLine();
-		if (!ok())
-			throw new IOException(info);
-	}
-
-	/**
-	 * Adds a document to the currently open database. Sets the
-	 * {@link BaseXClient#info()} value.
-	 * 
-	 * @param path
-	 *            Path of the document to add.
-	 * @param input
-	 *            The document to add.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void add(final String path, Clob input) throws IOException, SQLException {
-		check();
-		write(CMD_ADD);
-		writeLine(path);
-		write(input.getAsciiStream());
-		writeLine();
-		info = readLine();
-		if (!ok())
-			throw new IOException(info);
-	}
-
-	/**
-	 * Replaces a document to the currently open database. Sets the
-	 * {@link BaseXClient#info()} value.
-	 * 
-	 * @param path
-	 *            Path to replace.
-	 * @param input
-	 *            Input to replace with.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void replace(final String path, Clob input) throws IOException, SQLException {
-		check();
-		write(CMD_REPLACE);
-		writeLine(path);
-		write(input.getAsciiStream());
-		writeLine();
-		info = readLine();
-		if (!ok())
-			throw new IOException(info);
-	}
-
-	/**
-	 * Stores a binary resource in the currently open database. Sets the
-	 * {@link BaseXClient#info()} value.
-	 * 
-	 * @param path
-	 *            Path to resource.
-	 * @param input
-	 *            Raw binary input.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void store(final String path, Blob input) throws IOException, SQLException {
-		check();
-		write(CMD_STORE);
-		writeLine(path);
-		writeBinary(input.getBinaryStream());
-		writeLine();
-		info = readLine();
-		if (!ok())
-			throw new IOException(info);
-	}
-
-	/**
-	 * Retrieves a binary resource from the currently open database. Sets the
-	 * {@link BaseXClient#info()} value.
-	 * 
-	 * @param path
-	 *            Path to resource.
-	 * @param output
-	 *            Raw binary output.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void retrieve(final String path, Blob output) throws IOException, SQLException {
-		check();
-		// just in case the LOB has been reused
-		output.truncate(0);
-		writeLine("retrieve " + path);
-		readBinary(output.setBinaryStream(1));
-		info = readLine();
-		if (!ok())
-			throw new IOException(info);
-	}
-
-	/**
-	 * Deletes all documents from the currently opened database that start with
-	 * the specified path. Sets the {@link BaseXClient#info()} value.
-	 * 
-	 * @param path
-	 *            Path to delete.
-	 * @param output
-	 *            Output,
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void delete(final String path, Clob output) throws IOException, SQLException {
-		check();
-		// just in case the LOB has been reused
-		output.truncate(0);
-		writeLine("delete " + path);
-		readLine(output.setAsciiStream(1));
-		info = readLine();
-		if (!ok())
-			throw new IOException(info);
-	}
-
-	/**
-	 * Registers a query and returns the query id.
-	 * 
-	 * @param query
-	 *            The query text.
-	 * @return The query ID.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static String query(Clob query) throws IOException, SQLException {
-		check();
-		write(CMD_QUERY);
-		write(query.getAsciiStream());
-		writeLine();
-		final String queryId = readLine();
-		if (!ok())
-			throw new IOException(readLine());
-		// only init if ok
-		initQuery(queryId);
-		return queryId;
-	}
-
-	/**
-	 * Checks for more items in the result cache. Fills the cache if empty.
-	 * 
-	 * @param queryId
-	 *            The query ID to check.
-	 * @return true if more.
-	 * @throws IOException
-	 *             Communication problem.
-	 */
-	public static boolean more(String queryId) throws IOException {
-		if (cache.get(queryId) == null) {
-			write(QRY_RESULTS);
-			writeLine(queryId);
-			ArrayList<byte[]> results = new ArrayList<byte[]>();
-			final ByteArrayOutputStream os = new ByteArrayOutputStream();
-			// this loop reads the first byte and throws it away.
-			// the byte is the Type of the item being returned.
-			// The list of types is at org.basex.query.value.type.Type
-			while (socketInputStream.read() > 0) {
-				readLine(os);
-				results.add(os.toByteArray());
-				os.reset();
-			}
-			if (!ok())
-				throw new IOException(readLine());
-			cache.put(queryId, results);
-		}
-		if (cachePos.get(queryId) < cache.get(queryId).size())
-			return true;
-		cache.put(queryId, null);
-		return false;
-	}
-
-	/**
-	 * Gets the next item in the result cache.
-	 * 
-	 * @param queryId
-	 *            The query ID to get the next result from.
-	 * @param output
-	 *            The next result.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void next(String queryId, Clob output) throws IOException, SQLException {
-		// just in case the LOB has been reused
-		output.truncate(0);
-		if (more(queryId)) {
-			int pos = cachePos.get(queryId);
-			byte[] cacheRes = cache.get(queryId).set(pos, null);
-			BufferedOutputStream ins = new BufferedOutputStream(output.setAsciiStream(1));
-			for (int i = 0; i < cacheRes.length; i++) {
-				ins.write(cacheRes[i]);
-			}
-			ins.flush();
-			cachePos.put(queryId, ++pos);
-		}
-	}
-
-	/**
-	 * Executes this query and returns the entire result.
-	 * 
-	 * @param queryId
-	 *            Query ID to execute.
-	 * @param output
-	 *            The query results.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void results(final String queryId, final Clob output) throws IOException, SQLException {
-		getClobResults(QRY_EXEC, queryId, output);
-	}
-
-	/**
-	 * Returns query info.
-	 * 
-	 * @param queryId
-	 *            The query ID.
-	 * @return Information about this query.
-	 * @throws IOException
-	 *             Communication problem.
-	 */
-	public static String info(final String queryId) throws IOException {
-		socketOutputStream.write(QRY_INFO);
-		writeLine(queryId);
-		String s = readLine();
-		if (!ok())
-			throw new IOException(readLine());
-		return s;
-	}
-
-	/**
-	 * Returns serialization parameters.
-	 * 
-	 * @param queryId
-	 *            The query ID.
-	 * @param output
-	 *            The serialization parameters.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void options(final String queryId, final Clob output) throws IOException, SQLException {
-		getClobResults(QRY_OPTIONS, queryId, output);
-	}
-
-	/**
-	 * Binds a value to an external variable. Sets the
-	 * {@link BaseXClient#info()}
-	 * 
-	 * @param queryId
-	 *            The query ID.
-	 * @param name
-	 *            Name of the external variable.
-	 * @param value
-	 *            The value to bind.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void bind(final String queryId, final String name, final Clob value)
-			throws IOException, SQLException {
-		bind(queryId, name, value, "");
-	}
-
-	/**
-	 * Binds a value to an external variable. Sets the
-	 * {@link BaseXClient#info()}
-	 * 
-	 * @param queryId
-	 *            The query ID.
-	 * @param name
-	 *            Name of the external variable.
-	 * @param value
-	 *            The value to bind.
-	 * @param type
-	 *            The type of the variable.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void bind(final String queryId, final String name, final Clob value, final String type)
-			throws IOException, SQLException {
-		write(QRY_BIND);
-		writeLine(queryId);
-		writeLine(name);
-		write(value.getAsciiStream());
-		writeLine();
-		writeLine(type);
-		info = readLine();
-		if (!ok())
-			throw new IOException(readLine());
-	}
-
-	/**
-	 * Binds a value to the context item. Sets the {@link BaseXClient#info()}
-	 * value.
-	 * 
-	 * @param queryId
-	 *            The query ID.
-	 * @param value
-	 *            The value to bind.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void context(final String queryId, final Clob value) throws IOException, SQLException {
-		context(queryId, value, "");
-	}
-
-	/**
-	 * Binds a value to the context item. Sets the {@link BaseXClient#info()}
-	 * value.
-	 * 
-	 * @param queryId
-	 *            The query ID.
-	 * @param value
-	 *            The value to bind.
-	 * @param type
-	 *            The type of the bound context.
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	public static void context(final String queryId, final Clob value, final String type)
-			throws IOException, SQLException {
-		write(QRY_CONTEXT);
-		writeLine(queryId);
-		write(value.getAsciiStream());
-		writeLine();
-		writeLine(type);
-		info = readLine();
-		if (!ok())
-			throw new IOException(readLine());
-	}
-
-	/**
-	 * Releases the query in the server. Sets the {@link BaseXClient#info()}
-	 * value.
-	 * 
-	 * @param queryId
-	 *            The query ID.
-	 * @throws IOException
-	 *             Communication problem.
-	 */
-	public static void close(final String queryId) throws IOException {
-		write(QRY_CLOSE);
-		writeLine(queryId);
-		info = readLine();
-		destroyQuery(queryId);
-		if (!ok())
-			throw new IOException(readLine());
-	}
-
-	/**
-	 * Helper for simple code + queryId requests.
-	 * 
-	 * @param code
-	 * @param queryId
-	 * @param output
-	 * @throws IOException
-	 *             Communication problem.
-	 * @throws SQLException
-	 *             LOB problem
-	 */
-	private static void getClobResults(final int code, final String queryId, final Clob output)
-			throws IOException, SQLException {
-		// just in case the LOB has been reused
-		output.truncate(0);
-		socketOutputStream.write(code);
-		writeLine(queryId);
-		readLine(output.setAsciiStream(1));
-		if (!ok())
-			throw new IOException(readLine());
-	}
-
-	/**
-	 * Setup the query result cache for this query.
-	 * 
-	 * @param queryId
-	 */
-	private static void initQuery(String queryId) {
-		cache.put(queryId, null);
-		cachePos.put(queryId, 0);
-	}
-
-	/**
-	 * Tear down the query result cache for this query.
-	 * 
-	 * @param queryId
-	 */
-	private static void destroyQuery(String queryId) {
-		cache.remove(queryId);
-		cachePos.remove(queryId);
-	}
-
-	/**
-	 * Checks the next success flag.
-	 * 
-	 * @return value of check
-	 * @throws IOException
-	 *             Exception
-	 */
-	private static boolean ok() throws IOException {
-		socketOutputStream.flush();
-		int got = socketInputStream.read();
-		return got == 0;
-	}
-
-	/**
-	 * Sends terminator.
-	 * 
-	 * @throws IOException
-	 */
-	private static void writeLine() throws IOException {
-		socketOutputStream.write('\0');
-	}
-
-	/**
-	 * Sends string plus terminator.
-	 * 
-	 * @param string
-	 * @throws IOException
-	 */
-	private static void writeLine(final String string) throws IOException {
-		socketOutputStream.write((string + '\0').getBytes(UTF8));
-	}
-
-	/**
-	 * Sends single byte.
-	 * 
-	 * @param cmd
-	 * @throws IOException
-	 */
-	private static void write(final char cmd) throws IOException {
-		socketOutputStream.write(cmd);
-	}
-
-	/**
-	 * Writes text input stream without terminator.
-	 * 
-	 * @param input
-	 * @throws IOException
-	 */
-	private static void write(final InputStream input) throws IOException {
-		final BufferedInputStream bis = new BufferedInputStream(input);
-		final BufferedOutputStream bos = new BufferedOutputStream(socketOutputStream);
-		final Writer out = new OutputStreamWriter(bos, UTF8);
-		for (int b; (b = bis.read()) != -1;) {
-			// 0x00 and 0xFF will be prefixed by 0xFF
-			if (b == 0x00 || b == 0xFF)
-				out.write(0xFF);
-			out.write(b);
-		}
-		out.flush();
-	}
-
-	/**
-	 * Writes binary input stream without terminator.
-	 * 
-	 * @param input
-	 * @throws IOException
-	 */
-	private static void writeBinary(final InputStream input) throws IOException {
-		final BufferedInputStream bis = new BufferedInputStream(input);
-		final BufferedOutputStream bos = new BufferedOutputStream(socketOutputStream);
-		for (int b; (b = bis.read()) != -1;) {
-			// 0x00 and 0xFF will be prefixed by 0xFF
-			if (b == 0x00 || b == 0xFF)
-				bos.write(0xFF);
-			bos.write(b);
-		}
-		bos.flush();
-	}
-
-	/**
-	 * Reads text input until terminator when known to be shorter than 4000
-	 * characters.
-	 * 
-	 * @return
-	 * @throws IOException
-	 */
-	private static String readLine() throws IOException {
-		final ByteArrayOutputStream os = new ByteArrayOutputStream();
-		readLine(os);
-		return new String(os.toByteArray(), UTF8);
-	}
-
-	/**
-	 * Reads text input until terminator onto output stream.
-	 * 
-	 * @param output
-	 * @throws IOException
-	 */
-	private static void readLine(final OutputStream output) throws IOException {
-		final Writer out = new OutputStreamWriter(output, UTF8);
-		for (int b; (b = socketInputStream.read()) > 0;) {
-			// read next byte if 0xFF is received
-			out.write(b == 0xFF ? socketInputStream.read() : b);
-		}
-		out.flush();
-	}
-
-	/**
-	 * Reads binary input until terminator onto output stream.
-	 * 
-	 * @param output
-	 * @throws IOException
-	 */
-	private static void readBinary(final OutputStream output) throws IOException {
-		for (int b; (b = socketInputStream.read()) > 0;) {
-			// read next byte if 0xFF is received
-			output.write(b == 0xFF ? socketInputStream.read() : b);
-		}
-		output.flush();
-	}
-
-	/**
-	 * Returns an MD5 hash.
-	 * 
-	 * @param str
-	 *            String
-	 * @return String
-	 */
-	private static String md5(final String str) {
-		final StringBuilder sb = new StringBuilder();
-		try {
-			final MessageDigest md = MessageDigest.getInstance("MD5");
-			md.update(str.getBytes());
-			byte[] ba = md.digest();
-			for (int i = 0; i < ba.length; i++) {
-				final byte b = ba[i];
-				final String s = Integer.toHexString(b & 0xFF);
-				if (s.length() == 1)
-					sb.append('0');
-				sb.append(s);
-			}
-		} catch (final NoSuchAlgorithmException ex) {
-			// should not occur
-			ex.printStackTrace();
-		}
-		return sb.toString();
-	}
-
-	/**
-	 * @return if the socket is closed.
-	 */
-	private static boolean isClosed() {
-		if (socket == null)
-			return true;
-		return socket.isClosed();
-	}
-
-	/**
-	 * Checks if the socket can be used.
-	 * 
-	 * @throws IOException
-	 */
-	private static void check() throws IOException {
-		if (isClosed())
-			throw new IOException("Socket closed.");
-	}
-}
+package com.zadean.oracle.basex;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import oracle.sql.ARRAY;
+import oracle.sql.BFILE;
+
+/**
+ * <p>
+ * Java <a href="http://basex.org/">BaseX</a> client for use in the Oracle JVM.
+ * Roughly based on BaseXClient in the BaseX <a href=
+ * "https://github.com/BaseXdb/basex/tree/master/basex-examples/src/main/java/org/basex/examples/api">
+ * repository</a>.
+ * </p>
+ * <p>
+ * The static implementation is a 'must' for the JVM. The single class imports
+ * are to keep down the footprint in the database. LOB's should be initialized
+ * in the DB before they are used; otherwise NullPointerException. Currently
+ * (11.2), the Oracle JVM uses the Java 1.6 standard libraries.
+ * </p>
+ * <p>
+ * Several sessions can be open at the same time. {@link BaseXClient#connect}
+ * returns a session ID that routes the overloads taking a session as first
+ * argument. The methods without a session ID use the default session that is
+ * created by {@link BaseXClient#open}.
+ * </p>
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+public class BaseXClient {
+
+	/** Open sessions by ID */
+	private static HashMap<Integer, Session> sessions = new HashMap<Integer, Session>();
+	/** The session used by the calls without session ID */
+	private static Session defaultSession;
+	/** Last session ID handed out */
+	private static int lastId;
+	/** IDs of sessions that were closed by eviction */
+	private static HashSet<Integer> evicted = new HashSet<Integer>();
+	/** Maximum number of open sessions besides the default session */
+	private static int maxSessions = 8;
+	/** Seconds after which an unused session is closed, 0 for never */
+	private static int idleTimeout;
+	/** If results are streamed from the socket instead of cached */
+	private static boolean streaming;
+	/** Number of result bytes a cached cursor keeps on the heap */
+	private static long heapBudget = CachedCursor.DEFAULT_BUDGET;
+	/** Number of result items read ahead in the background, 0 for none */
+	private static int prefetch;
+	/** Maximum number of prepared queries per session */
+	private static int preparedCacheSize = 16;
+	/** Maximum number of other open queries per session, 0 for no limit */
+	private static int maxCursors;
+	/** Seconds after which an unused query is closed, 0 for never */
+	private static int cursorTimeout;
+	/** Transport, TCP options and timeouts of new sessions */
+	private static final SocketOptions socketOptions = new SocketOptions();
+
+	/** SQL collection type for batches of items as CLOBs. */
+	private static final String CLOB_LIST = "BASEX_CLOB_LIST";
+	/** SQL collection type for batches of items as VARCHAR2. */
+	private static final String STRING_LIST = "BASEX_STRING_LIST";
+
+	/**
+	 * Creates a client session with the given credentials. If there is already
+	 * an open session, it will be closed and a new session created.
+	 * 
+	 * @param host
+	 *            Host
+	 * @param port
+	 *            Port
+	 * @param username
+	 *            User
+	 * @param password
+	 *            Password
+	 * @throws IOException
+	 *             Access denied, no server
+	 */
+	public static void open(final String host, final int port, final String username, final String password)
+			throws IOException {
+		// close any open socket
+		close();
+		defaultSession = create(host, port, username, password);
+	}
+
+	/**
+	 * Closes an open session. Attempts to neatly close the session on the
+	 * server, closes the socket and frees static variables to avoid resource
+	 * leaks.
+	 */
+	public static void close() {
+		if (defaultSession != null) {
+			sessions.remove(defaultSession.id);
+			defaultSession.close();
+			defaultSession = null;
+		}
+	}
+
+	/**
+	 * Creates an additional client session with the given credentials and
+	 * returns its ID. If the maximum number of sessions is reached, the least
+	 * recently used session is closed first. The default session is never
+	 * closed this way and does not count against the maximum.
+	 * 
+	 * @param host
+	 *            Host
+	 * @param port
+	 *            Port
+	 * @param username
+	 *            User
+	 * @param password
+	 *            Password
+	 * @return The session ID.
+	 * @throws IOException
+	 *             Access denied, no server
+	 */
+	public static int connect(final String host, final int port, final String username, final String password)
+			throws IOException {
+		evict();
+		return create(host, port, username, password).id;
+	}
+
+	/**
+	 * Opens a session with the current settings and registers it.
+	 * 
+	 * @param host
+	 *            Host
+	 * @param port
+	 *            Port
+	 * @param username
+	 *            User
+	 * @param password
+	 *            Password
+	 * @return The session.
+	 * @throws IOException
+	 *             Access denied, no server
+	 */
+	private static Session create(final String host, final int port, final String username,
+			final String password) throws IOException {
+		final Session session = new Session(++lastId, host, port, username, password, socketOptions);
+		session.streaming = streaming;
+		session.heapBudget = heapBudget;
+		session.prefetch = prefetch;
+		session.preparedCacheSize(preparedCacheSize);
+		session.maxCursors = maxCursors;
+		session.cursorTimeout = cursorTimeout * 1000L;
+		sessions.put(session.id, session);
+		return session;
+	}
+
+	/**
+	 * Closes the session with the given ID. Unknown IDs are ignored.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 */
+	public static void disconnect(final int session) {
+		evicted.remove(session);
+		final Session s = sessions.remove(session);
+		if (s == null)
+			return;
+		if (s == defaultSession)
+			defaultSession = null;
+		s.close();
+	}
+
+	/**
+	 * Sets the maximum number of sessions opened by
+	 * {@link BaseXClient#connect}. The default session is not counted.
+	 * 
+	 * @param max
+	 *            Maximum number of sessions (at least 1).
+	 */
+	public static void maxSessions(final int max) {
+		maxSessions = Math.max(1, max);
+	}
+
+	/**
+	 * Sets the time after which an unused session is closed when the next
+	 * session is created. The default session is never closed this way.
+	 * 
+	 * @param seconds
+	 *            Idle timeout in seconds, 0 to keep sessions open.
+	 */
+	public static void idleTimeout(final int seconds) {
+		idleTimeout = Math.max(0, seconds);
+	}
+
+	/**
+	 * Sets the transport of sessions opened after this call: the streams of
+	 * a blocking socket (default), or a non-blocking socket channel that
+	 * reuses direct buffers and sends each command in one gathering write.
+	 * 
+	 * @param name
+	 *            socket or nio.
+	 * @throws IOException
+	 *             Unknown transport.
+	 */
+	public static void transport(final String name) throws IOException {
+		if ("nio".equalsIgnoreCase(name))
+			socketOptions.nio = true;
+		else if ("socket".equalsIgnoreCase(name))
+			socketOptions.nio = false;
+		else
+			throw new IOException("Unknown transport: " + name);
+	}
+
+	/**
+	 * Sets the TCP options of sessions opened after this call.
+	 * 
+	 * @param tcpNoDelay
+	 *            true to switch off Nagle's algorithm (default).
+	 * @param keepAlive
+	 *            true to send keep-alive probes.
+	 * @param sendBuffer
+	 *            Socket send buffer size in bytes, 0 for the system default.
+	 * @param receiveBuffer
+	 *            Socket receive buffer size in bytes, 0 for the system
+	 *            default.
+	 */
+	public static void socketOptions(final boolean tcpNoDelay, final boolean keepAlive, final int sendBuffer,
+			final int receiveBuffer) {
+		socketOptions.tcpNoDelay = tcpNoDelay;
+		socketOptions.keepAlive = keepAlive;
+		socketOptions.sendBuffer = Math.max(0, sendBuffer);
+		socketOptions.receiveBuffer = Math.max(0, receiveBuffer);
+	}
+
+	/**
+	 * Sets the connect and read timeouts of sessions opened after this call.
+	 * A session whose read times out is closed, as the rest of the answer is
+	 * still on the wire.
+	 * 
+	 * @param connectMillis
+	 *            Connect timeout in milliseconds, 0 for none (default 5000).
+	 * @param readMillis
+	 *            Read timeout in milliseconds, 0 for none (default).
+	 */
+	public static void timeouts(final int connectMillis, final int readMillis) {
+		socketOptions.connectTimeout = Math.max(0, connectMillis);
+		socketOptions.readTimeout = Math.max(0, readMillis);
+	}
+
+	/**
+	 * Returns the information string for the last command run that sets it.
+	 * 
+	 * @return The info string.
+	 */
+	public static String info() {
+		return defaultSession == null ? null : defaultSession.info();
+	}
+
+	/**
+	 * Same as {@link BaseXClient#info()} in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @return The info string.
+	 * @throws IOException
+	 *             Unknown session.
+	 */
+	public static String info(final int session) throws IOException {
+		return session(session).info();
+	}
+
+	/**
+	 * Switches between cached and streaming results for queries whose results
+	 * are fetched after this call, in all sessions. Cached results (the
+	 * default) are read completely on the first
+	 * {@link BaseXClient#more(String)}. Streaming results are decoded from the
+	 * socket one item at a time as {@link BaseXClient#next(String, Clob)} is
+	 * called; any other command sent before the last item was read discards
+	 * the remaining items.
+	 * 
+	 * @param enabled
+	 *            true to stream results.
+	 */
+	public static void streaming(final boolean enabled) {
+		streaming = enabled;
+		for (final Session session : sessions.values())
+			session.streaming = enabled;
+	}
+
+	/**
+	 * Sets how many bytes of a cached result are kept on the Java heap, in
+	 * all sessions. The items beyond it are written to a temporary BLOB and
+	 * read back from there, so large results do not exhaust the session
+	 * heap. Applies to results fetched after this call.
+	 * 
+	 * @param bytes
+	 *            Heap budget per query result, 0 for no limit (default 16
+	 *            MB).
+	 */
+	public static void resultHeapBudget(final int bytes) {
+		heapBudget = Math.max(0, bytes);
+		for (final Session session : sessions.values())
+			session.heapBudget = heapBudget;
+	}
+
+	/**
+	 * Switches on reading results ahead, in all sessions. During a call that
+	 * takes many items ({@link BaseXClient#nextBatch},
+	 * {@link BaseXClient#nextStrings} and the table sink), a background thread
+	 * decodes them from the socket into a queue of the given size while the
+	 * caller processes the items already fetched; the thread waits while the
+	 * queue is full. It is stopped at the end of an item before the call
+	 * returns, the items it read are kept for the next call. It does not help
+	 * other calls such as {@link BaseXClient#next}, which read the items one
+	 * at a time as they are needed, as with streaming. An error while reading
+	 * is thrown by the call that needs the next item. Any other command sent
+	 * before the last item was taken discards the remaining items. Takes
+	 * precedence over {@link BaseXClient#streaming(boolean)} for results
+	 * fetched after this call.
+	 * 
+	 * @param items
+	 *            Maximum number of items read ahead, 0 to switch off
+	 *            (default).
+	 */
+	public static void prefetch(final int items) {
+		prefetch = Math.max(0, items);
+		for (final Session session : sessions.values())
+			session.prefetch = prefetch;
+	}
+
+	/**
+	 * Returns call, byte and latency counters per protocol command for all
+	 * sessions.
+	 * 
+	 * @return One basex_metric per command that has been called
+	 *         (basex_metric_list).
+	 * @throws SQLException
+	 */
+	public static ARRAY metrics() throws SQLException {
+		return Metrics.toArray();
+	}
+
+	/**
+	 * Sets all metrics to zero.
+	 */
+	public static void resetMetrics() {
+		Metrics.reset();
+	}
+
+	/**
+	 * Switches on caching the results of
+	 * {@link BaseXClient#results(String, Clob, boolean)} across calls, for
+	 * queries registered after this call in any session. A cached result is
+	 * returned while it is younger than the time to live and neither this
+	 * client has written to its database nor it was invalidated. Queries that
+	 * update are asked for once and never cached. Results are found by server,
+	 * open database, query text, bound variables and context; the least
+	 * recently used are dropped when the byte budget is exceeded.
+	 * 
+	 * @param seconds
+	 *            Time to live of new results, 0 to switch off and clear the
+	 *            cache (default).
+	 * @param bytes
+	 *            Byte budget of all cached results.
+	 */
+	public static void resultCache(final int seconds, final long bytes) {
+		ResultCache.configure(seconds, bytes);
+	}
+
+	/**
+	 * Drops cached results of a database.
+	 * 
+	 * @param database
+	 *            Name of the database, null for all results.
+	 */
+	public static void invalidateResultCache(final String database) {
+		ResultCache.invalidate(null, database);
+	}
+
+	/**
+	 * Returns the hit, miss, size and eviction counters of the result cache.
+	 * 
+	 * @return the counters (basex_cache_stats).
+	 * @throws SQLException
+	 */
+	public static Struct resultCacheStats() throws SQLException {
+		return ResultCache.toStruct();
+	}
+
+	/**
+	 * Sets the hit, miss and eviction counters of the result cache to zero.
+	 */
+	public static void resetResultCacheStats() {
+		ResultCache.reset();
+	}
+
+	/**
+	 * Switches on the slow-query log for queries registered after this call
+	 * in any session. An execution by {@link BaseXClient#results} or
+	 * {@link BaseXClient#bindResults} that takes longer than the threshold
+	 * is written to the <code>basex_slow_queries</code> table in the
+	 * transaction of the caller, with the query hash, the bound variable
+	 * names, the server phases from {@link BaseXClient#info(String)} and the
+	 * client network and LOB time.
+	 * 
+	 * @param millis
+	 *            Threshold in milliseconds, negative to switch off (default).
+	 */
+	public static void slowQueryLog(final int millis) {
+		Profiler.threshold(millis);
+	}
+
+	/**
+	 * Switches checking documents for changes on or off, in all sessions.
+	 * While on, {@link BaseXClient#add(String, Clob)} and
+	 * {@link BaseXClient#replace(String, Clob)} skip a document whose digest
+	 * is the one stored in the <code>basex_digests</code> table for its
+	 * server, database and path, and store the digest of every document sent, in the
+	 * transaction of the caller. Needs an open database.
+	 * 
+	 * @param enabled
+	 *            true to check documents.
+	 */
+	public static void dedup(final boolean enabled) {
+		Dedup.enabled = enabled;
+	}
+
+	/**
+	 * Forgets stored document digests, so the documents are sent again.
+	 * Needed after the documents were changed by other clients.
+	 * 
+	 * @param database
+	 *            Name of the database, null for all databases.
+	 * @param path
+	 *            Path of a document or directory, null for the whole
+	 *            database.
+	 * @param server
+	 *            Host and port of the server as <code>host:port</code>, null
+	 *            for all servers.
+	 * @throws SQLException
+	 */
+	public static void forgetDigests(final String database, final String path, final String server)
+			throws SQLException {
+		Dedup.forget(server, database, path);
+	}
+
+	/**
+	 * Returns the numbers and bytes of documents skipped and sent while
+	 * checking documents for changes.
+	 * 
+	 * @return the counters (basex_dedup_stats).
+	 * @throws SQLException
+	 */
+	public static Struct dedupStats() throws SQLException {
+		return Dedup.toStruct();
+	}
+
+	/**
+	 * Sets the skipped and sent counters to zero.
+	 */
+	public static void resetDedupStats() {
+		Dedup.reset();
+	}
+
+	/**
+	 * Executes a command and returns the result, replacing the output. Sets
+	 * the {@link BaseXClient#info()} value.
+	 * 
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            The results of the command.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static void execute(final String command, Clob output) throws IOException, SQLException {
+		execute(command, output, false);
+	}
+
+	/**
+	 * Executes a command and returns the result. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            The results of the command.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static void execute(final String command, Clob output, final boolean append)
+			throws IOException, SQLException {
+		session().execute(command, output, append);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#execute(String, Clob)} in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            The results of the command.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static void execute(final int session, final String command, Clob output)
+			throws IOException, SQLException {
+		execute(session, command, output, false);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#execute(String, Clob, boolean)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            The results of the command.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static void execute(final int session, final String command, Clob output, final boolean append)
+			throws IOException, SQLException {
+		session(session).execute(command, output, append);
+	}
+
+	/**
+	 * Executes a command and returns the result as raw bytes, for commands
+	 * with binary output such as retrieve. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            Raw binary output.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static void execute(final String command, Blob output, final boolean append)
+			throws IOException, SQLException {
+		session().execute(command, output, append);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#execute(String, Blob, boolean)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            Raw binary output.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static void execute(final int session, final String command, Blob output, final boolean append)
+			throws IOException, SQLException {
+		session(session).execute(command, output, append);
+	}
+
+	/**
+	 * Executes a list of text commands. Unless the batch stops on the first
+	 * error, the commands are pipelined so the round trips overlap, and a
+	 * failed command does not stop the others. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param commands
+	 *            The commands (basex_string_list).
+	 * @param stopOnError
+	 *            true to skip the commands after a failed one, which needs
+	 *            one round trip per command.
+	 * @return The output and status of each command that was executed
+	 *         (basex_command_result_list).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 */
+	public static ARRAY execute(final ARRAY commands, final boolean stopOnError) throws IOException, SQLException {
+		return CommandResult.toArray(session().execute(Arrays.asList(strings(commands)), stopOnError));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#execute(ARRAY, boolean)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param commands
+	 *            The commands (basex_string_list).
+	 * @param stopOnError
+	 *            true to skip the commands after a failed one.
+	 * @return The output and status of each command that was executed
+	 *         (basex_command_result_list).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 */
+	public static ARRAY execute(final int session, final ARRAY commands, final boolean stopOnError)
+			throws IOException, SQLException {
+		return CommandResult.toArray(session(session).execute(Arrays.asList(strings(commands)), stopOnError));
+	}
+
+	/**
+	 * Executes a command script with one command per line, like
+	 * {@link BaseXClient#execute(ARRAY, boolean)}. Empty lines and lines
+	 * starting with <code>#</code> are skipped.
+	 * 
+	 * @param script
+	 *            The script.
+	 * @param stopOnError
+	 *            true to skip the commands after a failed one, which needs
+	 *            one round trip per command.
+	 * @return The output and status of each command that was executed
+	 *         (basex_command_result_list).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static ARRAY executeScript(final Clob script, final boolean stopOnError)
+			throws IOException, SQLException {
+		return CommandResult.toArray(session().execute(commands(script), stopOnError));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#executeScript(Clob, boolean)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param script
+	 *            The script.
+	 * @param stopOnError
+	 *            true to skip the commands after a failed one.
+	 * @return The output and status of each command that was executed
+	 *         (basex_command_result_list).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static ARRAY executeScript(final int session, final Clob script, final boolean stopOnError)
+			throws IOException, SQLException {
+		return CommandResult.toArray(session(session).execute(commands(script), stopOnError));
+	}
+
+	/**
+	 * Creates a database. Sets the {@link BaseXClient#info()} value.
+	 * 
+	 * @param name
+	 *            Database name.
+	 * @param input
+	 *            XML input to initialize the database.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void create(final String name, Clob input) throws IOException, SQLException {
+		session().create(name, input);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#create(String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param name
+	 *            Database name.
+	 * @param input
+	 *            XML input to initialize the database.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void create(final int session, final String name, Clob input) throws IOException, SQLException {
+		session(session).create(name, input);
+	}
+
+	/**
+	 * Adds a document to the currently open database. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path of the document to add.
+	 * @param input
+	 *            The document to add.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void add(final String path, Clob input) throws IOException, SQLException {
+		session().add(path, input);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#add(String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path of the document to add.
+	 * @param input
+	 *            The document to add.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void add(final int session, final String path, Clob input) throws IOException, SQLException {
+		session(session).add(path, input);
+	}
+
+	/**
+	 * Replaces a document to the currently open database. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path to replace.
+	 * @param input
+	 *            Input to replace with.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void replace(final String path, Clob input) throws IOException, SQLException {
+		session().replace(path, input);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#replace(String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to replace.
+	 * @param input
+	 *            Input to replace with.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void replace(final int session, final String path, Clob input) throws IOException, SQLException {
+		session(session).replace(path, input);
+	}
+
+	/**
+	 * Stores a binary resource in the currently open database. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param input
+	 *            Raw binary input.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void store(final String path, Blob input) throws IOException, SQLException {
+		session().store(path, input);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#store(String, Blob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param input
+	 *            Raw binary input.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void store(final int session, final String path, Blob input) throws IOException, SQLException {
+		session(session).store(path, input);
+	}
+
+	/**
+	 * Stores a file as a binary resource in the currently open database,
+	 * without staging it in a LOB. The file is read through a channel
+	 * straight onto the socket. Needs the Java permission to read the file.
+	 * Sets the {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param file
+	 *            Path of the file on the database server.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Digest table problem.
+	 */
+	public static void storeFile(final String path, final String file) throws IOException, SQLException {
+		session().storeFile(path, new File(file));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#storeFile(String, String)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param file
+	 *            Path of the file on the database server.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Digest table problem.
+	 */
+	public static void storeFile(final int session, final String path, final String file) throws IOException,
+			SQLException {
+		session(session).storeFile(path, new File(file));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#storeFile(String, String)} for a file in a
+	 * directory object.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param directory
+	 *            Name of the directory object.
+	 * @param name
+	 *            Name of the file in the directory.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Unknown directory
+	 */
+	public static void storeFile(final String path, final String directory, final String name)
+			throws IOException, SQLException {
+		session().storeFile(path, Database.file(directory, name));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#storeFile(String, String, String)} in the
+	 * given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param directory
+	 *            Name of the directory object.
+	 * @param name
+	 *            Name of the file in the directory.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Unknown directory
+	 */
+	public static void storeFile(final int session, final String path, final String directory, final String name)
+			throws IOException, SQLException {
+		session(session).storeFile(path, Database.file(directory, name));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#storeFile(String, String)} for the file a
+	 * BFILE points to. The file is read directly, not through the LOB
+	 * interface.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param input
+	 *            The BFILE.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Unknown directory
+	 */
+	public static void storeFile(final String path, final BFILE input) throws IOException, SQLException {
+		session().storeFile(path, Database.file(input.getDirAlias(), input.getName()));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#storeFile(String, BFILE)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param input
+	 *            The BFILE.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Unknown directory
+	 */
+	public static void storeFile(final int session, final String path, final BFILE input)
+			throws IOException, SQLException {
+		session(session).storeFile(path, Database.file(input.getDirAlias(), input.getName()));
+	}
+
+	/**
+	 * Sends many documents to the currently open database with add, replace or
+	 * store. Up to <code>depth</code> documents are sent before the first
+	 * acknowledgement is read. A failed document does not stop the others.
+	 * Sets the {@link BaseXClient#info()} value.
+	 * 
+	 * @param command
+	 *            add, replace or store.
+	 * @param documents
+	 *            The documents (basex_document_list).
+	 * @param depth
+	 *            Maximum number of unacknowledged documents.
+	 * @return The status of each document (basex_status_list).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static ARRAY ingest(final String command, final ARRAY documents, final int depth)
+			throws IOException, SQLException {
+		return Status.toArray(session().ingest(command, Documents.of(documents), depth, true).statuses);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#ingest(String, ARRAY, int)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param command
+	 *            add, replace or store.
+	 * @param documents
+	 *            The documents (basex_document_list).
+	 * @param depth
+	 *            Maximum number of unacknowledged documents.
+	 * @return The status of each document (basex_status_list).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static ARRAY ingest(final int session, final String command, final ARRAY documents, final int depth)
+			throws IOException, SQLException {
+		return Status.toArray(session(session).ingest(command, Documents.of(documents), depth, true).statuses);
+	}
+
+	/**
+	 * Sends the rows of a query as documents to the currently open database
+	 * with add, replace or store. The first column is the path, the second
+	 * the content. Up to <code>depth</code> documents are sent before the
+	 * first acknowledgement is read. A failed document does not stop the
+	 * others; only the first failed ones are returned, so memory does not
+	 * grow with the number of rows. Sets the {@link BaseXClient#info()}
+	 * value.
+	 * 
+	 * @param command
+	 *            add, replace or store.
+	 * @param query
+	 *            Query on the calling session.
+	 * @param depth
+	 *            Maximum number of unacknowledged documents.
+	 * @return The numbers of documents and bytes, and the first failed
+	 *         documents (basex_ingest_result).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Query or LOB problem
+	 */
+	public static Struct ingest(final String command, final String query, final int depth)
+			throws IOException, SQLException {
+		return session().ingest(command, Documents.query(query), depth, false).toStruct();
+	}
+
+	/**
+	 * Same as {@link BaseXClient#ingest(String, String, int)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param command
+	 *            add, replace or store.
+	 * @param query
+	 *            Query on the calling session.
+	 * @param depth
+	 *            Maximum number of unacknowledged documents.
+	 * @return The numbers of documents and bytes, and the first failed
+	 *         documents (basex_ingest_result).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Query or LOB problem
+	 */
+	public static Struct ingest(final int session, final String command, final String query, final int depth)
+			throws IOException, SQLException {
+		return session(session).ingest(command, Documents.query(query), depth, false).toStruct();
+	}
+
+	/**
+	 * Exports the rows of a query to the currently open database, one XML
+	 * document per row. The first column is the path; the other columns
+	 * become child elements of the row element, named after the column
+	 * labels. Rows are serialized onto the socket as they are fetched, with
+	 * up to <code>depth</code> documents sent before the first
+	 * acknowledgement is read. Only the first failed documents are returned,
+	 * so memory does not grow with the number of rows. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param command
+	 *            add or replace.
+	 * @param query
+	 *            Select statement returning the path and the columns.
+	 * @param row
+	 *            Name of the row element.
+	 * @param depth
+	 *            Maximum number of unacknowledged documents.
+	 * @return The numbers of documents and bytes, and the first failed
+	 *         documents (basex_ingest_result).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Query problem
+	 */
+	public static Struct export(final String command, final String query, final String row, final int depth)
+			throws IOException, SQLException {
+		return export(session(), command, query, row, depth);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#export(String, String, String, int)} in the
+	 * given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param command
+	 *            add or replace.
+	 * @param query
+	 *            Select statement returning the path and the columns.
+	 * @param row
+	 *            Name of the row element.
+	 * @param depth
+	 *            Maximum number of unacknowledged documents.
+	 * @return The numbers of documents and bytes, and the first failed
+	 *         documents (basex_ingest_result).
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Query problem
+	 */
+	public static Struct export(final int session, final String command, final String query, final String row,
+			final int depth) throws IOException, SQLException {
+		return export(session(session), command, query, row, depth);
+	}
+
+	/**
+	 * Exports all rows of a query to the currently open database as a single
+	 * XML document. Each row becomes a row element inside the root element.
+	 * The document is serialized onto the socket as the rows are fetched.
+	 * Sets the {@link BaseXClient#info()} value.
+	 * 
+	 * @param command
+	 *            add or replace.
+	 * @param path
+	 *            Path of the document.
+	 * @param query
+	 *            Select statement returning the columns.
+	 * @param root
+	 *            Name of the root element.
+	 * @param row
+	 *            Name of the row elements.
+	 * @throws IOException
+	 *             Communication problem or command failed.
+	 * @throws SQLException
+	 *             Query problem
+	 */
+	public static void exportDocument(final String command, final String path, final String query,
+			final String root, final String row) throws IOException, SQLException {
+		exportDocument(session(), command, path, query, root, row);
+	}
+
+	/**
+	 * Same as
+	 * {@link BaseXClient#exportDocument(String, String, String, String, String)}
+	 * in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param command
+	 *            add or replace.
+	 * @param path
+	 *            Path of the document.
+	 * @param query
+	 *            Select statement returning the columns.
+	 * @param root
+	 *            Name of the root element.
+	 * @param row
+	 *            Name of the row elements.
+	 * @throws IOException
+	 *             Communication problem or command failed.
+	 * @throws SQLException
+	 *             Query problem
+	 */
+	public static void exportDocument(final int session, final String command, final String path,
+			final String query, final String root, final String row) throws IOException, SQLException {
+		exportDocument(session(session), command, path, query, root, row);
+	}
+
+	/**
+	 * Retrieves a binary resource from the currently open database, replacing
+	 * the output. Sets the {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param output
+	 *            Raw binary output.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void retrieve(final String path, Blob output) throws IOException, SQLException {
+		retrieve(path, output, false);
+	}
+
+	/**
+	 * Retrieves a binary resource from the currently open database. Sets the
+	 * {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param output
+	 *            Raw binary output.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void retrieve(final String path, Blob output, final boolean append)
+			throws IOException, SQLException {
+		session().retrieve(path, output, append);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#retrieve(String, Blob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param output
+	 *            Raw binary output.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void retrieve(final int session, final String path, Blob output)
+			throws IOException, SQLException {
+		retrieve(session, path, output, false);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#retrieve(String, Blob, boolean)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param output
+	 *            Raw binary output.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void retrieve(final int session, final String path, Blob output, final boolean append)
+			throws IOException, SQLException {
+		session(session).retrieve(path, output, append);
+	}
+
+	/**
+	 * Retrieves a binary resource from the currently open database into a
+	 * file, without staging it in a LOB. The file is replaced, and deleted if
+	 * the resource cannot be retrieved. Needs the Java permission to write
+	 * the file. Sets the {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param file
+	 *            Path of the file on the database server.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 */
+	public static void retrieveFile(final String path, final String file) throws IOException {
+		session().retrieveFile(path, new File(file));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#retrieveFile(String, String)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param file
+	 *            Path of the file on the database server.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 */
+	public static void retrieveFile(final int session, final String path, final String file) throws IOException {
+		session(session).retrieveFile(path, new File(file));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#retrieveFile(String, String)} for a file in a
+	 * directory object.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param directory
+	 *            Name of the directory object.
+	 * @param name
+	 *            Name of the file in the directory.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Unknown directory
+	 */
+	public static void retrieveFile(final String path, final String directory, final String name)
+			throws IOException, SQLException {
+		session().retrieveFile(path, Database.file(directory, name));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#retrieveFile(String, String, String)} in the
+	 * given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to resource.
+	 * @param directory
+	 *            Name of the directory object.
+	 * @param name
+	 *            Name of the file in the directory.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 * @throws SQLException
+	 *             Unknown directory
+	 */
+	public static void retrieveFile(final int session, final String path, final String directory,
+			final String name) throws IOException, SQLException {
+		session(session).retrieveFile(path, Database.file(directory, name));
+	}
+
+	/**
+	 * Deletes all documents from the currently opened database that start with
+	 * the specified path. Sets the {@link BaseXClient#info()} value.
+	 * 
+	 * @param path
+	 *            Path to delete.
+	 * @param output
+	 *            Output,
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void delete(final String path, Clob output) throws IOException, SQLException {
+		session().delete(path, output);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#delete(String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param path
+	 *            Path to delete.
+	 * @param output
+	 *            Output,
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void delete(final int session, final String path, Clob output) throws IOException, SQLException {
+		session(session).delete(path, output);
+	}
+
+	/**
+	 * Registers a query and returns the query id.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @return The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static String query(Clob query) throws IOException, SQLException {
+		return session().query(query);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#query(Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param query
+	 *            The query text.
+	 * @return The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static String query(final int session, Clob query) throws IOException, SQLException {
+		return session(session).query(query);
+	}
+
+	/**
+	 * Returns the ID of a registered query with the same text, or registers
+	 * the query if there is none. Running the same query again then only needs
+	 * binding and executing it. The result cursor of a reused query starts
+	 * from the beginning; bound values are kept by the server. If the cache
+	 * is full, the least recently used prepared query is closed. Prepared
+	 * queries are closed with {@link BaseXClient#close(String)} as usual.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @return The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static String prepare(final Clob query) throws IOException, SQLException {
+		return session().prepare(query);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#prepare(Clob)} in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param query
+	 *            The query text.
+	 * @return The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static String prepare(final int session, final Clob query) throws IOException, SQLException {
+		return session(session).prepare(query);
+	}
+
+	/**
+	 * Sets the maximum number of prepared queries per session. Sessions that
+	 * hold more close their least recently used ones.
+	 * 
+	 * @param size
+	 *            Maximum number of prepared queries (default 16).
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static void preparedCacheSize(final int size) throws IOException {
+		preparedCacheSize = Math.max(0, size);
+		for (final Session session : sessions.values())
+			session.preparedCacheSize(preparedCacheSize);
+	}
+
+	/**
+	 * Sets the maximum number of open queries per session, not counting the
+	 * prepared ones. When a query is registered in a session that holds more,
+	 * its least recently used queries are closed on the server and their
+	 * results freed.
+	 * 
+	 * @param max
+	 *            Maximum number of open queries, 0 for no limit (default).
+	 */
+	public static void maxCursors(final int max) {
+		maxCursors = Math.max(0, max);
+		for (final Session session : sessions.values())
+			session.maxCursors = maxCursors;
+	}
+
+	/**
+	 * Sets the time after which a query that has not been used is closed on
+	 * the server and its results freed, when the next query is registered in
+	 * its session. Prepared queries are not closed this way.
+	 * 
+	 * @param seconds
+	 *            Idle timeout in seconds, 0 to keep queries open (default).
+	 */
+	public static void cursorTimeout(final int seconds) {
+		cursorTimeout = Math.max(0, seconds);
+		for (final Session session : sessions.values())
+			session.cursorTimeout = cursorTimeout * 1000L;
+	}
+
+	/**
+	 * Lists the open queries of all sessions with the state of their result
+	 * cursor, the time since their last use and the bytes their results hold
+	 * on the heap and in temporary LOBs.
+	 * 
+	 * @return One basex_cursor per open query.
+	 * @throws SQLException
+	 */
+	public static ARRAY openCursors() throws SQLException {
+		final ArrayList<OpenCursor> cursors = new ArrayList<OpenCursor>();
+		for (final Session session : sessions.values())
+			session.cursors(cursors);
+		return OpenCursor.toArray(cursors);
+	}
+
+	/**
+	 * Checks for more items in the result cache. Fills the cache if empty.
+	 * 
+	 * @param queryId
+	 *            The query ID to check.
+	 * @return true if more.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static boolean more(String queryId) throws IOException {
+		return session().more(queryId);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#more(String)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID to check.
+	 * @return true if more.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static boolean more(final int session, String queryId) throws IOException {
+		return session(session).more(queryId);
+	}
+
+	/**
+	 * Gets the next item in the result cache.
+	 * 
+	 * @param queryId
+	 *            The query ID to get the next result from.
+	 * @param output
+	 *            The next result.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void next(String queryId, Clob output) throws IOException, SQLException {
+		session().next(queryId, output);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#next(String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID to get the next result from.
+	 * @param output
+	 *            The next result.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void next(final int session, String queryId, Clob output) throws IOException, SQLException {
+		session(session).next(queryId, output);
+	}
+
+	/**
+	 * Gets up to the given number of items from the result cache as a
+	 * <code>basex_clob_list</code>. A batch smaller than requested is the
+	 * last one.
+	 * 
+	 * @param queryId
+	 *            The query ID to get the results from.
+	 * @param size
+	 *            Maximum number of items.
+	 * @return the items.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static ARRAY nextBatch(String queryId, int size) throws IOException, SQLException {
+		return clobList(session().nextBatch(queryId, size));
+	}
+
+	/**
+	 * Same as {@link BaseXClient#nextBatch(String, int)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID to get the results from.
+	 * @param size
+	 *            Maximum number of items.
+	 * @return the items.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static ARRAY nextBatch(final int session, String queryId, int size) throws IOException, SQLException {
+		return clobList(session(session).nextBatch(queryId, size));
+	}
+
+	/**
+	 * Gets up to the given number of items from the result cache as a
+	 * <code>basex_string_list</code>. The batch ends before an item longer
+	 * than 4000 bytes, which is left for {@link BaseXClient#next}; a batch
+	 * smaller than requested is the last one only if there are no more items.
+	 * 
+	 * @param queryId
+	 *            The query ID to get the results from.
+	 * @param size
+	 *            Maximum number of items.
+	 * @return the items.
+	 * @throws IOException
+	 *             Communication problem, or the first item is too long.
+	 * @throws SQLException
+	 *             Collection problem.
+	 */
+	public static ARRAY nextStrings(String queryId, int size) throws IOException, SQLException {
+		final List<String> items = session().nextStrings(queryId, size);
+		return Database.array(STRING_LIST, items.toArray());
+	}
+
+	/**
+	 * Same as {@link BaseXClient#nextStrings(String, int)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID to get the results from.
+	 * @param size
+	 *            Maximum number of items.
+	 * @return the items.
+	 * @throws IOException
+	 *             Communication problem, or the first item is too long.
+	 * @throws SQLException
+	 *             Collection problem.
+	 */
+	public static ARRAY nextStrings(final int session, String queryId, int size) throws IOException,
+			SQLException {
+		final List<String> items = session(session).nextStrings(queryId, size);
+		return Database.array(STRING_LIST, items.toArray());
+	}
+
+	/**
+	 * Returns the type of the next item in the result cache without moving
+	 * on, as listed in <code>org.basex.query.value.type.Type</code>: 7 for
+	 * functions, 8 to 15 for nodes, 32 and above for atomic values.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return The type code, or 0 if there are no more items.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static int nextType(String queryId) throws IOException {
+		return session().nextType(queryId);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#nextType(String)} in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @return The type code, or 0 if there are no more items.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static int nextType(final int session, String queryId) throws IOException {
+		return session(session).nextType(queryId);
+	}
+
+	/**
+	 * Gets the next item in the result cache as a string, without a LOB. An
+	 * item longer than 32767 bytes is not consumed and raises an error.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return The item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem, or the item is too long.
+	 */
+	public static String nextString(String queryId) throws IOException {
+		return session().nextString(queryId);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#nextString(String)} in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @return The item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem, or the item is too long.
+	 */
+	public static String nextString(final int session, String queryId) throws IOException {
+		return session(session).nextString(queryId);
+	}
+
+	/**
+	 * Gets the next item in the result cache as a number, without a LOB. An
+	 * item that is not a number is not consumed and raises an error.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return The item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem, or the item is not a number.
+	 */
+	public static BigDecimal nextNumber(String queryId) throws IOException {
+		return session().nextNumber(queryId);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#nextNumber(String)} in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @return The item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem, or the item is not a number.
+	 */
+	public static BigDecimal nextNumber(final int session, String queryId) throws IOException {
+		return session(session).nextNumber(queryId);
+	}
+
+	/**
+	 * Writes the remaining results of a query into a table with batch
+	 * inserts, one row per item, without passing the items through PL/SQL.
+	 * The results are streamed from the socket.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param table
+	 *            Name of the table.
+	 * @param column
+	 *            Name of the column for the items.
+	 * @param typeColumn
+	 *            Name of the column for the type codes, or null for none.
+	 * @param batchSize
+	 *            Rows per batch insert.
+	 * @param commitInterval
+	 *            Rows per commit, 0 to leave committing to the caller.
+	 * @return The number of rows inserted.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Insert problem
+	 */
+	public static long sink(final String queryId, final String table, final String column,
+			final String typeColumn, final int batchSize, final int commitInterval)
+			throws IOException, SQLException {
+		return sink(session(), queryId, table, column, typeColumn, batchSize, commitInterval);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#sink(String, String, String, String, int, int)}
+	 * in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param table
+	 *            Name of the table.
+	 * @param column
+	 *            Name of the column for the items.
+	 * @param typeColumn
+	 *            Name of the column for the type codes, or null for none.
+	 * @param batchSize
+	 *            Rows per batch insert.
+	 * @param commitInterval
+	 *            Rows per commit, 0 to leave committing to the caller.
+	 * @return The number of rows inserted.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Insert problem
+	 */
+	public static long sink(final int session, final String queryId, final String table, final String column,
+			final String typeColumn, final int batchSize, final int commitInterval)
+			throws IOException, SQLException {
+		return sink(session(session), queryId, table, column, typeColumn, batchSize, commitInterval);
+	}
+
+	/**
+	 * Executes this query and returns the entire result, replacing the
+	 * output.
+	 * 
+	 * @param queryId
+	 *            Query ID to execute.
+	 * @param output
+	 *            The query results.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void results(final String queryId, final Clob output) throws IOException, SQLException {
+		results(queryId, output, false);
+	}
+
+	/**
+	 * Executes this query and returns the entire result.
+	 * 
+	 * @param queryId
+	 *            Query ID to execute.
+	 * @param output
+	 *            The query results.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void results(final String queryId, final Clob output, final boolean append)
+			throws IOException, SQLException {
+		session().results(queryId, output, append);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#results(String, Clob)} in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            Query ID to execute.
+	 * @param output
+	 *            The query results.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void results(final int session, final String queryId, final Clob output)
+			throws IOException, SQLException {
+		results(session, queryId, output, false);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#results(String, Clob, boolean)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            Query ID to execute.
+	 * @param output
+	 *            The query results.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void results(final int session, final String queryId, final Clob output, final boolean append)
+			throws IOException, SQLException {
+		session(session).results(queryId, output, append);
+	}
+
+	/**
+	 * Returns query info.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return Information about this query.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static String info(final String queryId) throws IOException {
+		return session().info(queryId);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#info(String)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @return Information about this query.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static String info(final int session, final String queryId) throws IOException {
+		return session(session).info(queryId);
+	}
+
+	/**
+	 * Returns serialization parameters.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param output
+	 *            The serialization parameters.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void options(final String queryId, final Clob output) throws IOException, SQLException {
+		session().options(queryId, output);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#options(String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param output
+	 *            The serialization parameters.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void options(final int session, final String queryId, final Clob output)
+			throws IOException, SQLException {
+		session(session).options(queryId, output);
+	}
+
+	/**
+	 * Binds a value to an external variable. Sets the
+	 * {@link BaseXClient#info()}
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param name
+	 *            Name of the external variable.
+	 * @param value
+	 *            The value to bind.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bind(final String queryId, final String name, final Clob value)
+			throws IOException, SQLException {
+		session().bind(queryId, name, value);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#bind(String, String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param name
+	 *            Name of the external variable.
+	 * @param value
+	 *            The value to bind.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bind(final int session, final String queryId, final String name, final Clob value)
+			throws IOException, SQLException {
+		session(session).bind(queryId, name, value);
+	}
+
+	/**
+	 * Binds a value to an external variable. Sets the
+	 * {@link BaseXClient#info()}
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param name
+	 *            Name of the external variable.
+	 * @param value
+	 *            The value to bind.
+	 * @param type
+	 *            The type of the variable.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bind(final String queryId, final String name, final Clob value, final String type)
+			throws IOException, SQLException {
+		session().bind(queryId, name, value, type);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#bind(String, String, Clob, String)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param name
+	 *            Name of the external variable.
+	 * @param value
+	 *            The value to bind.
+	 * @param type
+	 *            The type of the variable.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bind(final int session, final String queryId, final String name, final Clob value, final String type)
+			throws IOException, SQLException {
+		session(session).bind(queryId, name, value, type);
+	}
+
+	/**
+	 * Binds values to several external variables in one round trip. All bind
+	 * commands are sent before the answers are read; failed binds are
+	 * reported together by variable name. Sets the
+	 * {@link BaseXClient#info()}
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param names
+	 *            Names of the external variables (basex_string_list).
+	 * @param values
+	 *            The values to bind (basex_clob_list).
+	 * @param types
+	 *            The types of the variables (basex_string_list), null or null
+	 *            elements for none.
+	 * @throws IOException
+	 *             Communication problem or failed binds.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bind(final String queryId, final ARRAY names, final ARRAY values, final ARRAY types)
+			throws IOException, SQLException {
+		session().bind(queryId, strings(names), clobs(values), strings(types), null, false);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#bind(String, ARRAY, ARRAY, ARRAY)} in the
+	 * given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param names
+	 *            Names of the external variables (basex_string_list).
+	 * @param values
+	 *            The values to bind (basex_clob_list).
+	 * @param types
+	 *            The types of the variables (basex_string_list), null or null
+	 *            elements for none.
+	 * @throws IOException
+	 *             Communication problem or failed binds.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bind(final int session, final String queryId, final ARRAY names, final ARRAY values,
+			final ARRAY types) throws IOException, SQLException {
+		session(session).bind(queryId, strings(names), clobs(values), strings(types), null, false);
+	}
+
+	/**
+	 * Binds values to several external variables and executes the query. All
+	 * bind commands are sent before the answers are read; failed binds are
+	 * reported together by variable name and leave the output unchanged. The
+	 * execution is sent along in the same round trip only for a query known
+	 * not to update, as the server runs it even if a bind failed; the first
+	 * call asks the server and executes in a second round trip.
+	 * Sets the {@link BaseXClient#info()}
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param names
+	 *            Names of the external variables (basex_string_list).
+	 * @param values
+	 *            The values to bind (basex_clob_list).
+	 * @param types
+	 *            The types of the variables (basex_string_list), null or null
+	 *            elements for none.
+	 * @param output
+	 *            The query results.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem, failed binds or execution.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bindResults(final String queryId, final ARRAY names, final ARRAY values, final ARRAY types,
+			final Clob output, final boolean append) throws IOException, SQLException {
+		session().bind(queryId, strings(names), clobs(values), strings(types), output, append);
+	}
+
+	/**
+	 * Same as
+	 * {@link BaseXClient#bindResults(String, ARRAY, ARRAY, ARRAY, Clob, boolean)}
+	 * in the given session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param names
+	 *            Names of the external variables (basex_string_list).
+	 * @param values
+	 *            The values to bind (basex_clob_list).
+	 * @param types
+	 *            The types of the variables (basex_string_list), null or null
+	 *            elements for none.
+	 * @param output
+	 *            The query results.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem, failed binds or execution.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void bindResults(final int session, final String queryId, final ARRAY names,
+			final ARRAY values, final ARRAY types, final Clob output, final boolean append)
+			throws IOException, SQLException {
+		session(session).bind(queryId, strings(names), clobs(values), strings(types), output, append);
+	}
+
+	/**
+	 * Binds a value to the context item. Sets the {@link BaseXClient#info()}
+	 * value.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param value
+	 *            The value to bind.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void context(final String queryId, final Clob value) throws IOException, SQLException {
+		session().context(queryId, value);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#context(String, Clob)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param value
+	 *            The value to bind.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void context(final int session, final String queryId, final Clob value)
+			throws IOException, SQLException {
+		session(session).context(queryId, value);
+	}
+
+	/**
+	 * Binds a value to the context item. Sets the {@link BaseXClient#info()}
+	 * value.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param value
+	 *            The value to bind.
+	 * @param type
+	 *            The type of the bound context.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void context(final String queryId, final Clob value, final String type)
+			throws IOException, SQLException {
+		session().context(queryId, value, type);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#context(String, Clob, String)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @param value
+	 *            The value to bind.
+	 * @param type
+	 *            The type of the bound context.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	public static void context(final int session, final String queryId, final Clob value, final String type)
+			throws IOException, SQLException {
+		session(session).context(queryId, value, type);
+	}
+
+	/**
+	 * Releases the query in the server. Sets the {@link BaseXClient#info()}
+	 * value.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static void close(final String queryId) throws IOException {
+		session().close(queryId);
+	}
+
+	/**
+	 * Same as {@link BaseXClient#close(String)} in the given
+	 * session.
+	 * 
+	 * @param session
+	 *            The session ID.
+	 * @param queryId
+	 *            The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	public static void close(final int session, final String queryId) throws IOException {
+		session(session).close(queryId);
+	}
+
+	/**
+	 * @return the default session.
+	 * @throws IOException
+	 *             If there is no default session.
+	 */
+	private static Session session() throws IOException {
+		if (defaultSession == null)
+			throw new IOException("Socket closed.");
+		defaultSession.lastUsed = System.currentTimeMillis();
+		return defaultSession;
+	}
+
+	/**
+	 * @param id
+	 *            The session ID.
+	 * @return the session with the given ID.
+	 * @throws IOException
+	 *             If there is no such session, or it was closed by eviction.
+	 */
+	private static Session session(final int id) throws IOException {
+		final Session session = sessions.get(id);
+		if (session == null && evicted.contains(id))
+			throw new IOException("Session " + id
+					+ " was closed: idle timeout or maximum number of sessions reached.");
+		if (session == null)
+			throw new IOException("Session " + id + " is not open.");
+		session.lastUsed = System.currentTimeMillis();
+		return session;
+	}
+
+	/**
+	 * Closes sessions that have been idle for too long and, if the maximum
+	 * number of sessions is still reached, the least recently used ones. The
+	 * default session is neither closed nor counted. The IDs of the closed
+	 * sessions are kept, so later calls with them fail with a clear message.
+	 */
+	private static void evict() {
+		final long now = System.currentTimeMillis();
+		int open = 0;
+		for (final Iterator<Session> it = sessions.values().iterator(); it.hasNext();) {
+			final Session session = it.next();
+			if (session == defaultSession)
+				continue;
+			if (session.isClosed() || idleTimeout > 0 && now - session.lastUsed > idleTimeout * 1000L) {
+				it.remove();
+				evicted.add(session.id);
+				session.close();
+			} else {
+				open++;
+			}
+		}
+		for (; open >= maxSessions; open--) {
+			Session lru = null;
+			for (final Session session : sessions.values()) {
+				if (session != defaultSession && (lru == null || session.lastUsed < lru.lastUsed))
+					lru = session;
+			}
+			sessions.remove(lru.id);
+			evicted.add(lru.id);
+			lru.close();
+		}
+	}
+
+	/**
+	 * Converts items to a <code>basex_clob_list</code>.
+	 * 
+	 * @param items
+	 *            The items.
+	 * @return the collection.
+	 * @throws SQLException
+	 */
+	private static ARRAY clobList(final List<String> items) throws SQLException {
+		final Clob[] elements = new Clob[items.size()];
+		for (int i = 0; i < elements.length; i++)
+			elements[i] = Database.clob(items.get(i));
+		return Database.array(CLOB_LIST, elements);
+	}
+
+	/**
+	 * Splits a command script into commands.
+	 * 
+	 * @param script
+	 *            The script, one command per line.
+	 * @return the commands.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private static List<String> commands(final Clob script) throws IOException, SQLException {
+		final ArrayList<String> commands = new ArrayList<String>();
+		final BufferedReader lines = new BufferedReader(script.getCharacterStream());
+		try {
+			for (String line; (line = lines.readLine()) != null;) {
+				line = line.trim();
+				if (line.length() > 0 && !line.startsWith("#"))
+					commands.add(line);
+			}
+		} finally {
+			lines.close();
+		}
+		return commands;
+	}
+
+	/**
+	 * Converts a <code>basex_string_list</code>.
+	 * 
+	 * @param list
+	 *            The collection, or null.
+	 * @return the strings, or null.
+	 * @throws SQLException
+	 */
+	private static String[] strings(final ARRAY list) throws SQLException {
+		if (list == null)
+			return null;
+		final Object[] elements = (Object[]) list.getArray();
+		final String[] strings = new String[elements.length];
+		for (int i = 0; i < elements.length; i++)
+			strings[i] = (String) elements[i];
+		return strings;
+	}
+
+	/**
+	 * Converts a <code>basex_clob_list</code>.
+	 * 
+	 * @param list
+	 *            The collection.
+	 * @return the CLOBs.
+	 * @throws SQLException
+	 */
+	private static Clob[] clobs(final ARRAY list) throws SQLException {
+		final Object[] elements = (Object[]) list.getArray();
+		final Clob[] clobs = new Clob[elements.length];
+		for (int i = 0; i < elements.length; i++)
+			clobs[i] = (Clob) elements[i];
+		return clobs;
+	}
+
+	/**
+	 * Exports rows with one document per row.
+	 * 
+	 * @param session
+	 * @param command
+	 * @param query
+	 * @param row
+	 * @param depth
+	 * @return the outcome as basex_ingest_result.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private static Struct export(final Session session, final String command, final String query, final String row,
+			final int depth) throws IOException, SQLException {
+		checkExport(command);
+		return session.ingest(command, Documents.rows(query, row), depth, false).toStruct();
+	}
+
+	/**
+	 * Exports rows as a single document.
+	 * 
+	 * @param session
+	 * @param command
+	 * @param path
+	 * @param query
+	 * @param root
+	 * @param row
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private static void exportDocument(final Session session, final String command, final String path,
+			final String query, final String root, final String row) throws IOException, SQLException {
+		checkExport(command);
+		final IngestResult result = session.ingest(command, Documents.document(query, path, root, row), 1, true);
+		final Status status = result.statuses.get(0);
+		if (!status.ok)
+			throw new IOException(status.info);
+	}
+
+	/**
+	 * @param command
+	 *            Command of an export.
+	 * @throws IOException
+	 *             XML cannot be stored as a binary resource.
+	 */
+	private static void checkExport(final String command) throws IOException {
+		if ("store".equalsIgnoreCase(command))
+			throw new IOException("Rows can only be exported with add or replace.");
+	}
+
+	/**
+	 * Writes query results into a table.
+	 * 
+	 * @param session
+	 * @param queryId
+	 * @param table
+	 * @param column
+	 * @param typeColumn
+	 * @param batchSize
+	 * @param commitInterval
+	 * @return the number of rows.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private static long sink(final Session session, final String queryId, final String table, final String column,
+			final String typeColumn, final int batchSize, final int commitInterval)
+			throws IOException, SQLException {
+		final TableSink sink = new TableSink(table, column, typeColumn, batchSize, commitInterval);
+		try {
+			return session.sink(queryId, sink);
+		} finally {
+			sink.close();
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package com.zadean.oracle.basex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Reads the whole result sequence with the type of every item when created
+ * and hands the items out of memory. Items are kept on the heap up to a byte
+ * budget. The items after that are decoded straight into a temporary BLOB,
+ * without holding any of them as a whole, and read back in order.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class CachedCursor extends ResultCursor {
+
+	/** Default number of item bytes kept on the heap. */
+	static final int DEFAULT_BUDGET = 16 * 1024 * 1024;
+	/** Size of the chunks items are written to the LOB in. */
+	private static final int CHUNK = 8192;
+
+	/** The cached items. */
+	private final ArrayList<byte[]> items = new ArrayList<byte[]>();
+	/** Types of the cached items. */
+	private byte[] types = new byte[16];
+	/** Position of the next item. */
+	private int pos;
+	/**
+	 * Temporary LOB with the items beyond the budget, each as its type and
+	 * chunks prefixed by their length, ended by a length of 0
+	 */
+	private Blob spill;
+	/** Number of items left in the LOB */
+	private int spilled;
+	/** Reads the items back from the LOB */
+	private DataInputStream spillIn;
+	/** Item read back from the LOB but not returned yet */
+	private byte[] current;
+	/** Type of the current item */
+	private int currentType;
+	/** Bytes of the items on the heap that have not been returned */
+	private long heap;
+	/** Bytes written to the LOB */
+	private long spillSize;
+
+	/**
+	 * Reads all items of the pending <code>QRY_RESULTS</code> response.
+	 * 
+	 * @param codec
+	 *            The session codec.
+	 * @param budget
+	 *            Number of item bytes kept on the heap, 0 for no limit.
+	 * @throws IOException
+	 *             Communication problem, query error or LOB problem.
+	 */
+	CachedCursor(final WireCodec codec, final long budget) throws IOException {
+		final Receiver receiver = new Receiver(budget);
+		// every item is announced by its type, 0 ends the sequence.
+		// The list of types is at org.basex.query.value.type.Type
+		for (int type; (type = codec.read()) > 0;) {
+			receiver.start(type);
+			codec.readEscaped(receiver);
+			receiver.end();
+		}
+		IOException error = receiver.finish();
+		if (codec.read() != 0)
+			error = new IOException(codec.readString());
+		if (error != null) {
+			close();
+			throw error;
+		}
+	}
+
+	@Override
+	boolean more() {
+		return pos < items.size() || current != null || spilled > 0;
+	}
+
+	@Override
+	int type() throws IOException {
+		if (pos < items.size())
+			return types[pos] & 0xFF;
+		return peek() == null ? 0 : currentType;
+	}
+
+	@Override
+	byte[] peek() throws IOException {
+		if (pos < items.size())
+			return items.get(pos);
+		if (current == null && spilled > 0) {
+			try {
+				if (spillIn == null)
+					spillIn = new DataInputStream(new BufferedInputStream(spill.getBinaryStream()));
+			} catch (SQLException e) {
+				throw new IOException(e);
+			}
+			currentType = spillIn.read();
+			final ByteArrayOutputStream item = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[CHUNK];
+			for (int n; (n = spillIn.readInt()) > 0;) {
+				spillIn.readFully(buffer, 0, n);
+				item.write(buffer, 0, n);
+			}
+			current = item.toByteArray();
+			spilled--;
+		}
+		return current;
+	}
+
+	@Override
+	byte[] next() throws IOException {
+		if (pos < items.size()) {
+			final byte[] item = items.set(pos++, null);
+			heap -= item.length;
+			return item;
+		}
+		final byte[] item = peek();
+		current = null;
+		if (spilled == 0)
+			close();
+		return item;
+	}
+
+	@Override
+	long heapBytes() {
+		return heap + (current == null ? 0 : current.length);
+	}
+
+	@Override
+	long spilledBytes() {
+		return spillSize;
+	}
+
+	@Override
+	void close() throws IOException {
+		items.clear();
+		pos = 0;
+		heap = 0;
+		spillSize = 0;
+		spilled = 0;
+		current = null;
+		if (spill == null)
+			return;
+		try {
+			if (spillIn != null)
+				spillIn.close();
+			spill.free();
+		} catch (SQLException e) {
+			throw new IOException(e);
+		} finally {
+			spill = null;
+			spillIn = null;
+		}
+	}
+
+	/**
+	 * Creates the temporary LOB for the items beyond the budget.
+	 * 
+	 * @return stream onto the LOB.
+	 * @throws IOException
+	 *             LOB problem.
+	 */
+	private DataOutputStream spill() throws IOException {
+		try {
+			spill = Database.blob();
+			return new DataOutputStream(new BufferedOutputStream(spill.setBinaryStream(1)));
+		} catch (SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Receives the decoded items. An item is collected on the heap while it
+	 * fits into the budget. Once the budget is reached, the item and all
+	 * items after it are written to the LOB in chunks while they are
+	 * decoded. The first LOB error is kept, and the rest discarded, until
+	 * the response has been read to the end.
+	 */
+	private final class Receiver extends OutputStream {
+		/** Number of item bytes kept on the heap, 0 for no limit. */
+		private final long budget;
+		/** The current item while it is kept on the heap. */
+		private final ByteArrayOutputStream item = new ByteArrayOutputStream();
+		/** Bytes not written to the LOB yet. */
+		private final byte[] chunk = new byte[CHUNK];
+		/** Number of bytes in the chunk. */
+		private int chunkPos;
+		/** Stream onto the LOB, null until the budget is reached. */
+		private DataOutputStream out;
+		/** Type of the current item. */
+		private int type;
+		/** Bytes of the items on the heap. */
+		private long size;
+		/** First LOB error. */
+		private IOException error;
+
+		/**
+		 * @param budget
+		 *            Number of item bytes kept on the heap, 0 for no limit.
+		 */
+		Receiver(final long budget) {
+			this.budget = budget;
+		}
+
+		/**
+		 * Starts an item.
+		 * 
+		 * @param t
+		 *            Type of the item.
+		 */
+		void start(final int t) {
+			type = t;
+			if (out != null && error == null) {
+				try {
+					out.write(t);
+					spillSize++;
+				} catch (IOException e) {
+					error = e;
+				}
+			}
+		}
+
+		@Override
+		public void write(final int b) {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			if (error != null)
+				return;
+			if (out == null && (budget <= 0 || size + item.size() + len <= budget)) {
+				item.write(b, off, len);
+				return;
+			}
+			try {
+				if (out == null) {
+					// the budget is reached, move the current item to the LOB
+					out = spill();
+					out.write(type);
+					spillSize++;
+					final byte[] head = item.toByteArray();
+					item.reset();
+					chunk(head, 0, head.length);
+				}
+				chunk(b, off, len);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+
+		/**
+		 * Ends an item.
+		 */
+		void end() {
+			if (out == null && error == null) {
+				if (items.size() == types.length) {
+					final byte[] tmp = new byte[types.length << 1];
+					System.arraycopy(types, 0, tmp, 0, types.length);
+					types = tmp;
+				}
+				types[items.size()] = (byte) type;
+				items.add(item.toByteArray());
+				size += item.size();
+				heap = size;
+			} else if (out != null && error == null) {
+				try {
+					flushChunk();
+					out.writeInt(0);
+					spillSize += 4;
+					spilled++;
+				} catch (IOException e) {
+					error = e;
+				}
+			}
+			item.reset();
+		}
+
+		/**
+		 * Closes the LOB stream.
+		 * 
+		 * @return the first LOB error, or null.
+		 */
+		IOException finish() {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					if (error == null)
+						error = e;
+				}
+			}
+			return error;
+		}
+
+		/**
+		 * Adds bytes to the chunk and writes full chunks to the LOB.
+		 * 
+		 * @param b
+		 *            The bytes.
+		 * @param off
+		 *            Offset of the first byte.
+		 * @param len
+		 *            Number of bytes.
+		 * @throws IOException
+		 *             LOB problem.
+		 */
+		private void chunk(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				final int n = Math.min(len, CHUNK - chunkPos);
+				System.arraycopy(b, off, chunk, chunkPos, n);
+				chunkPos += n;
+				off += n;
+				len -= n;
+				if (chunkPos == CHUNK)
+					flushChunk();
+			}
+		}
+
+		/**
+		 * Writes the bytes of the chunk to the LOB, prefixed by their number.
+		 * 
+		 * @throws IOException
+		 *             LOB problem.
+		 */
+		private void flushChunk() throws IOException {
+			if (chunkPos == 0)
+				return;
+			out.writeInt(chunkPos);
+			out.write(chunk, 0, chunkPos);
+			spillSize += 4 + chunkPos;
+			chunkPos = 0;
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package com.zadean.oracle.basex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>
+ * Transport on a non-blocking {@link SocketChannel}, used instead of the
+ * streams of a blocking socket. Received bytes are read into one direct
+ * buffer. Sent bytes are collected in direct buffers and written with one
+ * gathering write when the codec flushes, so a command frame of up to
+ * {@link #SEND_BUFFERS} buffers leaves in a single system call whatever the
+ * codec buffer size. All buffers are allocated once per session and reused.
+ * </p>
+ * <p>
+ * The channel is waited for through a selector, so the read timeout also
+ * applies to the channel; a read that times out closes the channel.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class ChannelTransport {
+
+	/** Size of each buffer. */
+	private static final int BUFFER_SIZE = 16384;
+	/** Maximum number of send buffers written at once. */
+	private static final int SEND_BUFFERS = 4;
+
+	/** The channel. */
+	private final SocketChannel channel;
+	/** Waits for the channel. */
+	private final Selector selector;
+	/** Registration of the channel. */
+	private final SelectionKey key;
+	/** Read timeout in milliseconds, 0 for none. */
+	private final int readTimeout;
+	/** Received bytes not read yet. */
+	private final ByteBuffer received = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	/** Send buffers, allocated when first needed. */
+	private final ByteBuffer[] send = new ByteBuffer[SEND_BUFFERS];
+	/** Index of the send buffer being filled. */
+	private int current;
+
+	/** Input for the codec. */
+	final InputStream input = new Input();
+	/** Output for the codec. */
+	final OutputStream output = new Output();
+
+	/**
+	 * Connects to the server.
+	 *
+	 * @param host
+	 *            Host
+	 * @param port
+	 *            Port
+	 * @param options
+	 *            TCP options and timeouts.
+	 * @throws IOException
+	 *             No server
+	 */
+	ChannelTransport(final String host, final int port, final SocketOptions options) throws IOException {
+		final SocketChannel ch = SocketChannel.open();
+		Selector sel = null;
+		try {
+			options.apply(ch.socket());
+			// connected in blocking mode, as only that honors the timeout
+			ch.socket().connect(new InetSocketAddress(host, port), options.connectTimeout);
+			ch.configureBlocking(false);
+			sel = Selector.open();
+			key = ch.register(sel, 0);
+		} catch (IOException e) {
+			if (sel != null)
+				sel.close();
+			ch.close();
+			throw e;
+		}
+		channel = ch;
+		selector = sel;
+		readTimeout = options.readTimeout;
+		send[0] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		received.flip();
+	}
+
+	/**
+	 * @return the socket of the channel.
+	 */
+	Socket socket() {
+		return channel.socket();
+	}
+
+	/**
+	 * Closes the channel and the selector.
+	 *
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		try {
+			selector.close();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Waits until the channel is ready.
+	 *
+	 * @param op
+	 *            {@link SelectionKey#OP_READ} or {@link SelectionKey#OP_WRITE}.
+	 * @param timeout
+	 *            Timeout in milliseconds, 0 for none.
+	 * @throws IOException
+	 *             Timeout or interrupt.
+	 */
+	private void await(final int op, final int timeout) throws IOException {
+		key.interestOps(op);
+		final long deadline = System.currentTimeMillis() + timeout;
+		while (selector.select(timeout == 0 ? 0 : Math.max(1, deadline - System.currentTimeMillis())) == 0) {
+			if (Thread.currentThread().isInterrupted())
+				throw new InterruptedIOException("Interrupted while waiting for the server.");
+			if (timeout > 0 && System.currentTimeMillis() >= deadline) {
+				close();
+				throw SocketOptions.timeout(timeout);
+			}
+		}
+		selector.selectedKeys().clear();
+	}
+
+	/**
+	 * Writes all collected bytes.
+	 *
+	 * @throws IOException
+	 */
+	private void drain() throws IOException {
+		for (int i = 0; i <= current; i++)
+			send[i].flip();
+		while (send[current].hasRemaining()) {
+			if (channel.write(send, 0, current + 1) == 0)
+				await(SelectionKey.OP_WRITE, 0);
+		}
+		for (int i = 0; i <= current; i++)
+			send[i].clear();
+		current = 0;
+	}
+
+	/**
+	 * Reads from the channel.
+	 */
+	private final class Input extends InputStream {
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (!received.hasRemaining()) {
+				received.clear();
+				int n;
+				while ((n = channel.read(received)) == 0)
+					await(SelectionKey.OP_READ, readTimeout);
+				received.flip();
+				if (n == -1)
+					return -1;
+			}
+			final int n = Math.min(len, received.remaining());
+			received.get(b, off, n);
+			return n;
+		}
+	}
+
+	/**
+	 * Collects bytes for the next gathering write.
+	 */
+	private final class Output extends OutputStream {
+		@Override
+		public void write(final int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!send[current].hasRemaining()) {
+					if (current + 1 == SEND_BUFFERS) {
+						drain();
+					} else {
+						current++;
+						if (send[current] == null)
+							send[current] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+					}
+				}
+				final int n = Math.min(len, send[current].remaining());
+				send[current].put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (current > 0 || send[0].position() > 0)
+				drain();
+		}
+	}
+}
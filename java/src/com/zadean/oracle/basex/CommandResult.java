@@ -0,0 +1,66 @@
+package com.zadean.oracle.basex;
+
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.List;
+
+import oracle.sql.ARRAY;
+
+/**
+ * Output and outcome of one command of a batch, returned to SQL as
+ * <code>basex_command_result</code>.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class CommandResult {
+
+	/** SQL object type. */
+	static final String TYPE = "BASEX_COMMAND_RESULT";
+	/** SQL collection type. */
+	static final String LIST_TYPE = "BASEX_COMMAND_RESULT_LIST";
+
+	/** The command. */
+	final String command;
+	/** If the command succeeded. */
+	final boolean ok;
+	/** Output of the command. */
+	final String output;
+	/** Info or error message. */
+	final String info;
+
+	/**
+	 * @param command
+	 *            The command.
+	 * @param ok
+	 *            If the command succeeded.
+	 * @param output
+	 *            Output of the command.
+	 * @param info
+	 *            Info or error message.
+	 */
+	CommandResult(final String command, final boolean ok, final String output, final String info) {
+		this.command = command;
+		this.ok = ok;
+		this.output = output;
+		this.info = info;
+	}
+
+	/**
+	 * Converts a list of results to a <code>basex_command_result_list</code>.
+	 * 
+	 * @param results
+	 *            The results.
+	 * @return the collection.
+	 * @throws SQLException
+	 */
+	static ARRAY toArray(final List<CommandResult> results) throws SQLException {
+		final Struct[] elements = new Struct[results.size()];
+		for (int i = 0; i < elements.length; i++) {
+			final CommandResult r = results.get(i);
+			elements[i] = Database.struct(TYPE, new Object[] { Database.varchar(r.command),
+					Integer.valueOf(r.ok ? 1 : 0), r.output.length() == 0 ? null : Database.clob(r.output),
+					Database.varchar(r.info) });
+		}
+		return Database.array(LIST_TYPE, elements);
+	}
+}
@@ -0,0 +1,156 @@
+package com.zadean.oracle.basex;
+
+import java.io.File;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Struct;
+
+import oracle.jdbc.OracleConnection;
+import oracle.sql.ARRAY;
+
+/**
+ * Access to the calling database session through the server-side JDBC
+ * driver. The default connection belongs to the session and must not be
+ * closed.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class Database {
+
+	/** URL of the connection of the calling session. */
+	private static final String DEFAULT_CONNECTION = "jdbc:default:connection:";
+	/** Looks up the path of a directory object the session may use. */
+	private static final String DIRECTORY_PATH = "select directory_path from all_directories where directory_name = ?";
+	/** Longest VARCHAR2 attribute in bytes. */
+	private static final int MAX_VARCHAR = 4000;
+
+	/** Not instantiable. */
+	private Database() {
+	}
+
+	/**
+	 * @return the connection of the calling session.
+	 * @throws SQLException
+	 */
+	static Connection connection() throws SQLException {
+		return DriverManager.getConnection(DEFAULT_CONNECTION);
+	}
+
+	/**
+	 * Creates a SQL object.
+	 * 
+	 * @param type
+	 *            Name of the object type.
+	 * @param attributes
+	 *            Attribute values in declaration order.
+	 * @return the object.
+	 * @throws SQLException
+	 */
+	static Struct struct(final String type, final Object[] attributes) throws SQLException {
+		return connection().createStruct(type, attributes);
+	}
+
+	/**
+	 * Creates a SQL collection.
+	 * 
+	 * @param type
+	 *            Name of the collection type.
+	 * @param elements
+	 *            The elements.
+	 * @return the collection.
+	 * @throws SQLException
+	 */
+	static ARRAY array(final String type, final Object[] elements) throws SQLException {
+		return ((OracleConnection) connection()).createARRAY(type, elements);
+	}
+
+	/**
+	 * Creates a temporary CLOB.
+	 * 
+	 * @param value
+	 *            The content.
+	 * @return the CLOB.
+	 * @throws SQLException
+	 */
+	static Clob clob(final String value) throws SQLException {
+		final Clob clob = connection().createClob();
+		clob.setString(1, value);
+		return clob;
+	}
+
+	/**
+	 * Cuts a string to the bytes a VARCHAR2(4000) attribute holds in UTF-8,
+	 * without splitting a character.
+	 * 
+	 * @param value
+	 *            The string, or null.
+	 * @return the string or its longest prefix that fits.
+	 */
+	static String varchar(final String value) {
+		// no character takes more than three bytes per char
+		if (value == null || value.length() * 3 <= MAX_VARCHAR)
+			return value;
+		int bytes = 0;
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			final int size;
+			if (c < 0x80)
+				size = 1;
+			else if (c < 0x800)
+				size = 2;
+			else if (Character.isHighSurrogate(c) && i + 1 < value.length())
+				size = 4;
+			else
+				size = 3;
+			if (bytes + size > MAX_VARCHAR)
+				return value.substring(0, i);
+			bytes += size;
+			if (size == 4)
+				i++;
+		}
+		return value;
+	}
+
+	/**
+	 * Creates an empty temporary BLOB.
+	 * 
+	 * @return the BLOB.
+	 * @throws SQLException
+	 */
+	static Blob blob() throws SQLException {
+		return connection().createBlob();
+	}
+
+	/**
+	 * Resolves a file in a directory object. The session needs a privilege on
+	 * the directory, and the Java permission to access the file.
+	 * 
+	 * @param directory
+	 *            Name of the directory object, as stored in the dictionary.
+	 * @param name
+	 *            Name of the file in the directory.
+	 * @return the file.
+	 * @throws SQLException
+	 *             Unknown directory or invalid file name.
+	 */
+	static File file(final String directory, final String name) throws SQLException {
+		if (name == null || name.length() == 0 || name.indexOf('/') >= 0 || name.indexOf('\\') >= 0
+				|| name.equals(".."))
+			throw new SQLException("Invalid file name: " + name);
+		final PreparedStatement statement = connection().prepareStatement(DIRECTORY_PATH);
+		try {
+			statement.setString(1, directory);
+			final ResultSet rs = statement.executeQuery();
+			if (!rs.next())
+				throw new SQLException("Unknown directory: " + directory);
+			return new File(rs.getString(1), name);
+		} finally {
+			statement.close();
+		}
+	}
+}
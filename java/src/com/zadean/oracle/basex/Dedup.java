@@ -0,0 +1,260 @@
+package com.zadean.oracle.basex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Struct;
+
+/**
+ * <p>
+ * Skips add and replace of documents that have not changed since this
+ * client last sent them. The SHA-256 digest of the UTF-8 content of every
+ * document sent is kept per server, database and path in the
+ * <code>basex_digests</code> table; a document with the same digest as the
+ * stored one is not sent. The server is identified by host and port, as in
+ * the {@link ResultCache}. The digest is computed in one pass over the LOB
+ * before anything is written to the socket.
+ * </p>
+ * <p>
+ * Deletes, drops and other writes through this client forget the digests
+ * they may invalidate. Changes made by other clients are not seen and have
+ * to be forgotten explicitly. The table is written in the transaction of
+ * the caller. Counters are returned to SQL as
+ * <code>basex_dedup_stats</code>.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class Dedup {
+
+	/** SQL object type of the counters. */
+	static final String TYPE = "BASEX_DEDUP_STATS";
+
+	/** Looks up the digest of a document. */
+	private static final String SELECT = "select digest from basex_digests where server = ? and database_name = ? "
+			+ "and path = ?";
+	/** Stores the digest of a document. */
+	private static final String MERGE = "merge into basex_digests d using (select ? server, ? database_name, "
+			+ "? path, ? digest, ? bytes from dual) s on (d.server = s.server "
+			+ "and d.database_name = s.database_name and d.path = s.path) "
+			+ "when matched then update set d.digest = s.digest, d.bytes = s.bytes, d.updated = systimestamp "
+			+ "when not matched then insert (server, database_name, path, digest, bytes) "
+			+ "values (s.server, s.database_name, s.path, s.digest, s.bytes)";
+	/** Forgets the digests of a path and the documents below it. */
+	private static final String DELETE_PATH = "delete from basex_digests where server = nvl(?, server) "
+			+ "and database_name = ? and (path = ? or path like ? escape '\\')";
+	/** Forgets the digests of a database, or of all databases. */
+	private static final String DELETE = "delete from basex_digests where server = nvl(?, server) "
+			+ "and database_name = nvl(?, database_name)";
+
+	/** If documents are checked. */
+	static boolean enabled;
+	/** Documents skipped. */
+	private static long skipped;
+	/** Documents sent while checking. */
+	private static long sent;
+	/** Bytes of the documents skipped. */
+	private static long skippedBytes;
+	/** Bytes of the documents sent while checking. */
+	private static long sentBytes;
+
+	/** Not instantiable. */
+	private Dedup() {
+	}
+
+	/**
+	 * Computes the digest of a document.
+	 *
+	 * @param input
+	 *            The document.
+	 * @return the digest.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	static Digest digest(final Clob input) throws IOException, SQLException {
+		final Digest digest = new Digest();
+		final Writer out = new OutputStreamWriter(digest, "UTF-8");
+		final Reader in = input.getCharacterStream();
+		try {
+			final char[] buffer = new char[8192];
+			for (int n; (n = in.read(buffer)) != -1;)
+				out.write(buffer, 0, n);
+			out.flush();
+		} finally {
+			in.close();
+		}
+		return digest;
+	}
+
+	/**
+	 * Checks if a document is unchanged and counts it as skipped if so.
+	 *
+	 * @param server
+	 *            Host and port of the server.
+	 * @param database
+	 *            The database.
+	 * @param path
+	 *            Path of the document.
+	 * @param digest
+	 *            Digest of the document.
+	 * @return true if the stored digest is the same.
+	 * @throws SQLException
+	 */
+	static boolean unchanged(final String server, final String database, final String path, final Digest digest)
+			throws SQLException {
+		final PreparedStatement select = Database.connection().prepareStatement(SELECT);
+		try {
+			select.setString(1, server);
+			select.setString(2, database);
+			select.setString(3, path);
+			final ResultSet rs = select.executeQuery();
+			if (!rs.next() || !digest.hex().equals(rs.getString(1)))
+				return false;
+		} finally {
+			select.close();
+		}
+		skipped++;
+		skippedBytes += digest.bytes;
+		return true;
+	}
+
+	/**
+	 * Stores the digest of a document that has been sent and counts it.
+	 *
+	 * @param server
+	 *            Host and port of the server.
+	 * @param database
+	 *            The database.
+	 * @param path
+	 *            Path of the document.
+	 * @param digest
+	 *            Digest of the document.
+	 * @throws SQLException
+	 */
+	static void sent(final String server, final String database, final String path, final Digest digest)
+			throws SQLException {
+		final PreparedStatement merge = Database.connection().prepareStatement(MERGE);
+		try {
+			merge.setString(1, server);
+			merge.setString(2, database);
+			merge.setString(3, path);
+			merge.setString(4, digest.hex());
+			merge.setLong(5, digest.bytes);
+			merge.executeUpdate();
+		} finally {
+			merge.close();
+		}
+		sent++;
+		sentBytes += digest.bytes;
+	}
+
+	/**
+	 * Forgets digests.
+	 *
+	 * @param server
+	 *            Host and port of the server, null for all servers.
+	 * @param database
+	 *            The database, null for all databases.
+	 * @param path
+	 *            Path of a document or directory, null for the whole
+	 *            database.
+	 * @throws SQLException
+	 */
+	static void forget(final String server, final String database, final String path) throws SQLException {
+		final PreparedStatement delete;
+		if (database == null || path == null) {
+			delete = Database.connection().prepareStatement(DELETE);
+			delete.setString(1, server);
+			delete.setString(2, database);
+		} else {
+			delete = Database.connection().prepareStatement(DELETE_PATH);
+			delete.setString(1, server);
+			delete.setString(2, database);
+			delete.setString(3, path);
+			delete.setString(4, path.replaceAll("([\\\\%_])", "\\\\$1") + "/%");
+		}
+		try {
+			delete.executeUpdate();
+		} finally {
+			delete.close();
+		}
+	}
+
+	/**
+	 * Converts the counters to a <code>basex_dedup_stats</code>.
+	 *
+	 * @return the object.
+	 * @throws SQLException
+	 */
+	static Struct toStruct() throws SQLException {
+		return Database.struct(TYPE, new Object[] { Long.valueOf(skipped), Long.valueOf(sent),
+				Long.valueOf(skippedBytes), Long.valueOf(sentBytes) });
+	}
+
+	/**
+	 * Sets the counters to zero.
+	 */
+	static void reset() {
+		skipped = 0;
+		sent = 0;
+		skippedBytes = 0;
+		sentBytes = 0;
+	}
+
+	/**
+	 * Digest of the UTF-8 bytes written to it.
+	 */
+	static final class Digest extends OutputStream {
+		/** The digest. */
+		private final MessageDigest md;
+		/** Number of bytes. */
+		long bytes;
+		/** The digest as hex string, once computed. */
+		private String hex;
+
+		/**
+		 * @throws IOException
+		 *             SHA-256 is not available.
+		 */
+		Digest() throws IOException {
+			try {
+				md = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+
+		@Override
+		public void write(final int b) {
+			md.update((byte) b);
+			bytes++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			md.update(b, off, len);
+			bytes += len;
+		}
+
+		/**
+		 * @return the digest as hex string.
+		 */
+		String hex() {
+			if (hex == null) {
+				final StringBuilder sb = new StringBuilder(64);
+				for (final byte b : md.digest())
+					sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+				hex = sb.toString();
+			}
+			return hex;
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package com.zadean.oracle.basex;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Struct;
+
+import oracle.sql.ARRAY;
+
+/**
+ * Source of documents for bulk ingest: a path and either text or binary
+ * content per document.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+abstract class Documents {
+
+	/** Rows fetched per round trip when reading from a query. */
+	private static final int FETCH_SIZE = 100;
+
+	/**
+	 * Moves to the next document.
+	 * 
+	 * @return false if there are no more documents.
+	 * @throws SQLException
+	 */
+	abstract boolean next() throws SQLException;
+
+	/**
+	 * @return the path of the current document.
+	 * @throws SQLException
+	 */
+	abstract String path() throws SQLException;
+
+	/**
+	 * @return the text content of the current document.
+	 * @throws SQLException
+	 */
+	abstract Reader text() throws SQLException;
+
+	/**
+	 * @return the binary content of the current document.
+	 * @throws SQLException
+	 */
+	abstract InputStream binary() throws SQLException;
+
+	/**
+	 * Releases the source.
+	 * 
+	 * @throws SQLException
+	 */
+	void close() throws SQLException {
+	}
+
+	/**
+	 * Runs a query, and closes the statement if it fails, so a bad query does
+	 * not leave an open cursor behind.
+	 * 
+	 * @param statement
+	 *            A new statement.
+	 * @param query
+	 *            The query text.
+	 * @return the rows.
+	 * @throws SQLException
+	 */
+	private static ResultSet execute(final Statement statement, final String query) throws SQLException {
+		boolean done = false;
+		try {
+			statement.setFetchSize(FETCH_SIZE);
+			final ResultSet rows = statement.executeQuery(query);
+			done = true;
+			return rows;
+		} finally {
+			if (!done)
+				statement.close();
+		}
+	}
+
+	/**
+	 * Creates the serializer of the rows of a query, and closes the statement
+	 * if the columns cannot be read.
+	 * 
+	 * @param statement
+	 *            The statement of the rows.
+	 * @param rows
+	 *            The rows.
+	 * @param root
+	 *            Name of the root element, null for none.
+	 * @param row
+	 *            Name of the row elements.
+	 * @param first
+	 *            First column to serialize.
+	 * @return the serializer.
+	 * @throws SQLException
+	 */
+	private static XmlRows serializer(final Statement statement, final ResultSet rows, final String root,
+			final String row, final int first) throws SQLException {
+		boolean done = false;
+		try {
+			final XmlRows xml = new XmlRows(rows, root, row, first);
+			done = true;
+			return xml;
+		} finally {
+			if (!done)
+				statement.close();
+		}
+	}
+
+	/**
+	 * Documents from a <code>basex_document_list</code>. Each element has a
+	 * path, a CLOB for text and a BLOB for binary content.
+	 * 
+	 * @param documents
+	 *            The collection.
+	 * @return the source.
+	 * @throws SQLException
+	 */
+	static Documents of(final ARRAY documents) throws SQLException {
+		final Object[] elements = (Object[]) documents.getArray();
+		return new Documents() {
+			private int pos = -1;
+			private Object[] current;
+
+			@Override
+			boolean next() throws SQLException {
+				if (++pos >= elements.length)
+					return false;
+				current = ((Struct) elements[pos]).getAttributes();
+				return true;
+			}
+
+			@Override
+			String path() {
+				return (String) current[0];
+			}
+
+			@Override
+			Reader text() throws SQLException {
+				return ((Clob) current[1]).getCharacterStream();
+			}
+
+			@Override
+			InputStream binary() throws SQLException {
+				return ((Blob) current[2]).getBinaryStream();
+			}
+		};
+	}
+
+	/**
+	 * Documents from the rows of a query on the calling session. The first
+	 * column is the path, the second the content.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @return the source.
+	 * @throws SQLException
+	 */
+	static Documents query(final String query) throws SQLException {
+		final Statement statement = Database.connection().createStatement();
+		final ResultSet rows = execute(statement, query);
+		return new Documents() {
+			@Override
+			boolean next() throws SQLException {
+				return rows.next();
+			}
+
+			@Override
+			String path() throws SQLException {
+				return rows.getString(1);
+			}
+
+			@Override
+			Reader text() throws SQLException {
+				return rows.getCharacterStream(2);
+			}
+
+			@Override
+			InputStream binary() throws SQLException {
+				return rows.getBinaryStream(2);
+			}
+
+			@Override
+			void close() throws SQLException {
+				statement.close();
+			}
+		};
+	}
+
+	/**
+	 * One XML document per row of a query on the calling session. The first
+	 * column is the path, the other columns are serialized by
+	 * {@link XmlRows} as the rows are fetched.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @param row
+	 *            Name of the row element.
+	 * @return the source.
+	 * @throws SQLException
+	 */
+	static Documents rows(final String query, final String row) throws SQLException {
+		final String name = XmlRows.name(row);
+		final Statement statement = Database.connection().createStatement();
+		final ResultSet rows = execute(statement, query);
+		final XmlRows columns = serializer(statement, rows, null, name, 2);
+		return new Documents() {
+			@Override
+			boolean next() throws SQLException {
+				return rows.next();
+			}
+
+			@Override
+			String path() throws SQLException {
+				return rows.getString(1);
+			}
+
+			@Override
+			Reader text() {
+				return columns.current();
+			}
+
+			@Override
+			InputStream binary() {
+				return null;
+			}
+
+			@Override
+			void close() throws SQLException {
+				statement.close();
+			}
+		};
+	}
+
+	/**
+	 * A single XML document with all rows of a query on the calling session,
+	 * serialized by {@link XmlRows} as the rows are fetched.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @param path
+	 *            Path of the document.
+	 * @param root
+	 *            Name of the root element.
+	 * @param row
+	 *            Name of the row elements.
+	 * @return the source.
+	 * @throws SQLException
+	 */
+	static Documents document(final String query, final String path, final String root, final String row)
+			throws SQLException {
+		final String rootName = XmlRows.name(root), rowName = XmlRows.name(row);
+		final Statement statement = Database.connection().createStatement();
+		final XmlRows content = serializer(statement, execute(statement, query), rootName, rowName, 1);
+		return new Documents() {
+			private boolean done;
+
+			@Override
+			boolean next() {
+				if (done)
+					return false;
+				done = true;
+				return true;
+			}
+
+			@Override
+			String path() {
+				return path;
+			}
+
+			@Override
+			Reader text() {
+				return content;
+			}
+
+			@Override
+			InputStream binary() {
+				return null;
+			}
+
+			@Override
+			void close() throws SQLException {
+				statement.close();
+			}
+		};
+	}
+}
@@ -0,0 +1,67 @@
+package com.zadean.oracle.basex;
+
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.ArrayList;
+
+/**
+ * Outcome of a bulk ingest. Counts the documents and keeps either the status
+ * of every document, for a collection of documents that is in memory anyway,
+ * or only the first failed ones, so an ingest or export from a query does
+ * not grow with the number of rows. Returned to SQL as
+ * <code>basex_ingest_result</code>.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class IngestResult {
+
+	/** SQL object type. */
+	static final String TYPE = "BASEX_INGEST_RESULT";
+	/** Failed documents kept if not every status is kept. */
+	static final int MAX_FAILURES = 100;
+
+	/** Statuses of all documents, or of the first failed ones. */
+	final ArrayList<Status> statuses = new ArrayList<Status>();
+	/** If the status of every document is kept. */
+	private final boolean all;
+	/** Documents sent and acknowledged. */
+	long documents;
+	/** Documents refused by the server. */
+	long failed;
+	/** Bytes sent. */
+	long bytes;
+
+	/**
+	 * @param all
+	 *            true to keep the status of every document, false for the
+	 *            first {@link #MAX_FAILURES} failed ones only.
+	 */
+	IngestResult(final boolean all) {
+		this.all = all;
+	}
+
+	/**
+	 * Counts an acknowledged document.
+	 *
+	 * @param status
+	 *            Its status.
+	 */
+	void add(final Status status) {
+		documents++;
+		if (!status.ok)
+			failed++;
+		if (all || !status.ok && statuses.size() < MAX_FAILURES)
+			statuses.add(status);
+	}
+
+	/**
+	 * Converts the outcome to a <code>basex_ingest_result</code>.
+	 *
+	 * @return the object.
+	 * @throws SQLException
+	 */
+	Struct toStruct() throws SQLException {
+		return Database.struct(TYPE, new Object[] { Long.valueOf(documents), Long.valueOf(failed),
+				Long.valueOf(bytes), Status.toArray(statuses) });
+	}
+}
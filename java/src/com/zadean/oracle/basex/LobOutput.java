@@ -0,0 +1,232 @@
+package com.zadean.oracle.basex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+import oracle.sql.BLOB;
+import oracle.sql.CLOB;
+
+/**
+ * <p>
+ * Buffered output into LOBs. Everything written is collected in a buffer
+ * that is a whole multiple of the LOB chunk size, and handed to the LOB only
+ * in full buffers, so every LOB write covers whole chunks no matter how the
+ * decoded output is split. The rest is written when the output is closed.
+ * </p>
+ * <p>
+ * The LOB is either truncated first or appended to.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class LobOutput {
+
+	/** Target size of the buffers. */
+	private static final int BUFFER_SIZE = 32768;
+	/** Chunk size assumed for LOBs that do not report one. */
+	private static final int DEFAULT_CHUNK = 8192;
+
+	/** Time spent writing to LOBs in nanoseconds, for the slow-query log. */
+	static long nanos;
+
+	/** Not instantiable. */
+	private LobOutput() {
+	}
+
+	/**
+	 * Opens a character output on a CLOB.
+	 *
+	 * @param clob
+	 *            The CLOB.
+	 * @param append
+	 *            true to append, false to replace the content.
+	 * @return the output, to be closed after the last write.
+	 * @throws SQLException
+	 */
+	static Writer writer(final Clob clob, final boolean append) throws SQLException {
+		final int chunk = clob instanceof CLOB ? ((CLOB) clob).getChunkSize() : DEFAULT_CHUNK;
+		return new ChunkWriter(clob.setCharacterStream(start(clob, append)), size(chunk));
+	}
+
+	/**
+	 * Opens a binary output on a BLOB.
+	 *
+	 * @param blob
+	 *            The BLOB.
+	 * @param append
+	 *            true to append, false to replace the content.
+	 * @return the output, to be closed after the last write.
+	 * @throws SQLException
+	 */
+	static OutputStream stream(final Blob blob, final boolean append) throws SQLException {
+		final int chunk = blob instanceof BLOB ? ((BLOB) blob).getChunkSize() : DEFAULT_CHUNK;
+		return new ChunkStream(blob.setBinaryStream(start(blob, append)), size(chunk));
+	}
+
+	/**
+	 * @param clob
+	 *            The CLOB.
+	 * @param append
+	 *            true to append, false to truncate.
+	 * @return the position of the first character to write.
+	 * @throws SQLException
+	 */
+	private static long start(final Clob clob, final boolean append) throws SQLException {
+		if (append)
+			return clob.length() + 1;
+		clob.truncate(0);
+		return 1;
+	}
+
+	/**
+	 * @param blob
+	 *            The BLOB.
+	 * @param append
+	 *            true to append, false to truncate.
+	 * @return the position of the first byte to write.
+	 * @throws SQLException
+	 */
+	private static long start(final Blob blob, final boolean append) throws SQLException {
+		if (append)
+			return blob.length() + 1;
+		blob.truncate(0);
+		return 1;
+	}
+
+	/**
+	 * @param chunk
+	 *            The chunk size.
+	 * @return the largest multiple of the chunk size up to the target
+	 *         buffer size, at least one chunk.
+	 */
+	private static int size(final int chunk) {
+		if (chunk <= 0)
+			return BUFFER_SIZE;
+		return chunk * Math.max(1, BUFFER_SIZE / chunk);
+	}
+
+	/**
+	 * Writer that passes characters on in full buffers.
+	 */
+	private static final class ChunkWriter extends Writer {
+		/** The LOB output. */
+		private final Writer target;
+		/** Collected characters. */
+		private final char[] buffer;
+		/** Number of collected characters. */
+		private int pos;
+
+		/**
+		 * @param target
+		 *            The LOB output.
+		 * @param size
+		 *            Buffer size.
+		 */
+		ChunkWriter(final Writer target, final int size) {
+			this.target = target;
+			buffer = new char[size];
+		}
+
+		@Override
+		public void write(final char[] cbuf, int off, int len) throws IOException {
+			while (len > 0) {
+				final int n = Math.min(len, buffer.length - pos);
+				System.arraycopy(cbuf, off, buffer, pos, n);
+				pos += n;
+				off += n;
+				len -= n;
+				if (pos == buffer.length) {
+					final long start = System.nanoTime();
+					target.write(buffer, 0, pos);
+					nanos += System.nanoTime() - start;
+					pos = 0;
+				}
+			}
+		}
+
+		@Override
+		public void flush() {
+			// only full buffers are written before close
+		}
+
+		@Override
+		public void close() throws IOException {
+			final long start = System.nanoTime();
+			if (pos > 0)
+				target.write(buffer, 0, pos);
+			pos = 0;
+			target.close();
+			nanos += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Stream that passes bytes on in full buffers.
+	 */
+	private static final class ChunkStream extends OutputStream {
+		/** The LOB output. */
+		private final OutputStream target;
+		/** Collected bytes. */
+		private final byte[] buffer;
+		/** Number of collected bytes. */
+		private int pos;
+
+		/**
+		 * @param target
+		 *            The LOB output.
+		 * @param size
+		 *            Buffer size.
+		 */
+		ChunkStream(final OutputStream target, final int size) {
+			this.target = target;
+			buffer = new byte[size];
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			buffer[pos++] = (byte) b;
+			if (pos == buffer.length) {
+				final long start = System.nanoTime();
+				target.write(buffer, 0, pos);
+				nanos += System.nanoTime() - start;
+				pos = 0;
+			}
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				final int n = Math.min(len, buffer.length - pos);
+				System.arraycopy(b, off, buffer, pos, n);
+				pos += n;
+				off += n;
+				len -= n;
+				if (pos == buffer.length) {
+					final long start = System.nanoTime();
+					target.write(buffer, 0, pos);
+					nanos += System.nanoTime() - start;
+					pos = 0;
+				}
+			}
+		}
+
+		@Override
+		public void flush() {
+			// only full buffers are written before close
+		}
+
+		@Override
+		public void close() throws IOException {
+			final long start = System.nanoTime();
+			if (pos > 0)
+				target.write(buffer, 0, pos);
+			pos = 0;
+			target.close();
+			nanos += System.nanoTime() - start;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package com.zadean.oracle.basex;
+
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.ArrayList;
+
+import oracle.sql.ARRAY;
+
+/**
+ * <p>
+ * Call, byte and latency counters per protocol command, for all sessions of
+ * the database session. Returned to SQL as <code>basex_metric_list</code>.
+ * </p>
+ * <p>
+ * Recording only increments counters in fixed arrays, so it stays on.
+ * Latencies are counted in logarithmic buckets with four steps per power of
+ * two, so percentiles are accurate to about 20%.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class Metrics {
+
+	/** SQL object type. */
+	static final String TYPE = "BASEX_METRIC";
+	/** SQL collection type. */
+	static final String LIST_TYPE = "BASEX_METRIC_LIST";
+
+	// the pseudo-codes are outside the protocol byte range, so they cannot
+	// be taken for a protocol command
+	/** Batch of text commands. */
+	static final int BATCH = 256;
+	/** Text commands such as retrieve and delete, which have no code. */
+	static final int COMMAND = 257;
+	/** Pipelined add, replace or store of many documents. */
+	static final int INGEST = 258;
+
+	/** Names of the commands by code. */
+	private static final String[] NAMES = new String[INGEST + 1];
+	static {
+		NAMES[0] = "CMD_QUERY";
+		NAMES[2] = "QRY_CLOSE";
+		NAMES[3] = "QRY_BIND";
+		NAMES[4] = "QRY_RESULTS";
+		NAMES[5] = "QRY_EXEC";
+		NAMES[6] = "QRY_INFO";
+		NAMES[7] = "QRY_OPTIONS";
+		NAMES[8] = "CMD_CREATE";
+		NAMES[9] = "CMD_ADD";
+		NAMES[12] = "CMD_REPLACE";
+		NAMES[13] = "CMD_STORE";
+		NAMES[14] = "QRY_CONTEXT";
+		NAMES[BATCH] = "BATCH";
+		NAMES[COMMAND] = "COMMAND";
+		NAMES[INGEST] = "INGEST";
+	}
+
+	/** Sub-buckets per power of two, as a number of bits. */
+	private static final int SUB_BITS = 2;
+	/** Number of latency buckets, enough for any long. */
+	private static final int BUCKETS = 64 << SUB_BITS;
+
+	/** Calls per command. */
+	private static final long[] calls = new long[NAMES.length];
+	/** Bytes sent per command. */
+	private static final long[] sent = new long[NAMES.length];
+	/** Bytes received per command. */
+	private static final long[] received = new long[NAMES.length];
+	/** Escape bytes sent and received per command. */
+	private static final long[] escaped = new long[NAMES.length];
+	/** Total latency per command in nanoseconds. */
+	private static final long[] total = new long[NAMES.length];
+	/** Maximum latency per command in nanoseconds. */
+	private static final long[] max = new long[NAMES.length];
+	/** Latency histogram per command, created on first use. */
+	private static final long[][] histograms = new long[NAMES.length][];
+
+	/** Not instantiable. */
+	private Metrics() {
+	}
+
+	/**
+	 * Records one call.
+	 *
+	 * @param code
+	 *            Command code.
+	 * @param nanos
+	 *            Latency.
+	 * @param bytesSent
+	 *            Bytes sent, including escapes.
+	 * @param bytesReceived
+	 *            Bytes received, including escapes.
+	 * @param escapes
+	 *            Escape bytes sent and received.
+	 */
+	static void record(final int code, final long nanos, final long bytesSent, final long bytesReceived,
+			final long escapes) {
+		calls[code]++;
+		sent[code] += bytesSent;
+		received[code] += bytesReceived;
+		escaped[code] += escapes;
+		total[code] += nanos;
+		if (nanos > max[code])
+			max[code] = nanos;
+		long[] histogram = histograms[code];
+		if (histogram == null) {
+			histogram = new long[BUCKETS];
+			histograms[code] = histogram;
+		}
+		histogram[bucket(nanos)]++;
+	}
+
+	/**
+	 * Sets all counters to zero.
+	 */
+	static void reset() {
+		for (int i = 0; i < NAMES.length; i++) {
+			calls[i] = 0;
+			sent[i] = 0;
+			received[i] = 0;
+			escaped[i] = 0;
+			total[i] = 0;
+			max[i] = 0;
+			histograms[i] = null;
+		}
+	}
+
+	/**
+	 * Converts the counters of all commands that have been called to a
+	 * <code>basex_metric_list</code>. Times are in milliseconds.
+	 *
+	 * @return the collection.
+	 * @throws SQLException
+	 */
+	static ARRAY toArray() throws SQLException {
+		final ArrayList<Struct> elements = new ArrayList<Struct>();
+		for (int i = 0; i < NAMES.length; i++) {
+			if (calls[i] == 0)
+				continue;
+			elements.add(Database.struct(TYPE, new Object[] { NAMES[i], Long.valueOf(calls[i]),
+					Long.valueOf(sent[i]), Long.valueOf(received[i]), Long.valueOf(escaped[i]),
+					millis(total[i]), millis(percentile(i, 0.50)), millis(percentile(i, 0.95)),
+					millis(percentile(i, 0.99)), millis(max[i]) }));
+		}
+		return Database.array(LIST_TYPE, elements.toArray());
+	}
+
+	/**
+	 * Estimates a latency percentile from the histogram.
+	 *
+	 * @param code
+	 *            Command code.
+	 * @param fraction
+	 *            The percentile as a fraction, e.g. 0.95.
+	 * @return upper bound of the bucket holding the percentile, at most the
+	 *         maximum latency.
+	 */
+	private static long percentile(final int code, final double fraction) {
+		final long[] histogram = histograms[code];
+		final long rank = (long) Math.ceil(calls[code] * fraction);
+		long count = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			count += histogram[b];
+			if (count >= rank)
+				return Math.min(upperBound(b), max[code]);
+		}
+		return max[code];
+	}
+
+	/**
+	 * @param nanos
+	 *            A latency.
+	 * @return the histogram bucket of the latency.
+	 */
+	private static int bucket(final long nanos) {
+		if (nanos < 1L << SUB_BITS)
+			return (int) Math.max(nanos, 0);
+		final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		final int sub = (int) (nanos >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+	}
+
+	/**
+	 * @param bucket
+	 *            A histogram bucket.
+	 * @return the largest latency in the bucket.
+	 */
+	private static long upperBound(final int bucket) {
+		if (bucket < 1 << SUB_BITS)
+			return bucket;
+		final int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+		final long sub = bucket & ((1 << SUB_BITS) - 1);
+		final long step = 1L << (exponent - SUB_BITS);
+		return (1L << exponent) + (sub + 1) * step - 1;
+	}
+
+	/**
+	 * @param nanos
+	 *            A time in nanoseconds.
+	 * @return the time in milliseconds.
+	 */
+	private static Double millis(final long nanos) {
+		return Double.valueOf(nanos / 1e6);
+	}
+}
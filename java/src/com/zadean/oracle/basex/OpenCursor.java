@@ -0,0 +1,85 @@
+package com.zadean.oracle.basex;
+
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.List;
+
+import oracle.sql.ARRAY;
+
+/**
+ * A query registered in a session and the memory held by its result cursor,
+ * returned to SQL as <code>basex_cursor</code>.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class OpenCursor {
+
+	/** SQL object type. */
+	static final String TYPE = "BASEX_CURSOR";
+	/** SQL collection type. */
+	static final String LIST_TYPE = "BASEX_CURSOR_LIST";
+
+	/** Session ID. */
+	final int session;
+	/** Query ID. */
+	final String queryId;
+	/** No results requested yet (none), cached, streaming or prefetch. */
+	final String state;
+	/** If the query is kept by the prepared query cache. */
+	final boolean prepared;
+	/** Milliseconds since the query was last used. */
+	final long idle;
+	/** Result bytes held on the heap. */
+	final long heapBytes;
+	/** Result bytes held in a temporary LOB. */
+	final long spilledBytes;
+
+	/**
+	 * @param session
+	 *            Session ID.
+	 * @param queryId
+	 *            Query ID.
+	 * @param cursor
+	 *            The result cursor, or null if no results were requested.
+	 * @param prepared
+	 *            If the query is a prepared one.
+	 * @param idle
+	 *            Milliseconds since the last use.
+	 */
+	OpenCursor(final int session, final String queryId, final ResultCursor cursor, final boolean prepared,
+			final long idle) {
+		this.session = session;
+		this.queryId = queryId;
+		this.prepared = prepared;
+		this.idle = idle;
+		if (cursor == null) {
+			state = "none";
+			heapBytes = 0;
+			spilledBytes = 0;
+		} else {
+			state = cursor instanceof CachedCursor ? "cached"
+					: cursor instanceof PrefetchCursor ? "prefetch" : "streaming";
+			heapBytes = cursor.heapBytes();
+			spilledBytes = cursor.spilledBytes();
+		}
+	}
+
+	/**
+	 * Converts a list of cursors to a <code>basex_cursor_list</code>.
+	 * 
+	 * @param cursors
+	 *            The cursors.
+	 * @return the collection.
+	 * @throws SQLException
+	 */
+	static ARRAY toArray(final List<OpenCursor> cursors) throws SQLException {
+		final Struct[] elements = new Struct[cursors.size()];
+		for (int i = 0; i < elements.length; i++) {
+			final OpenCursor c = cursors.get(i);
+			elements[i] = Database.struct(TYPE, new Object[] { Integer.valueOf(c.session), c.queryId, c.state,
+					Integer.valueOf(c.prepared ? 1 : 0), Long.valueOf(c.idle / 1000), Long.valueOf(c.heapBytes),
+					Long.valueOf(c.spilledBytes) });
+		}
+		return Database.array(LIST_TYPE, elements);
+	}
+}
@@ -0,0 +1,259 @@
+package com.zadean.oracle.basex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Decodes the items of a <code>QRY_RESULTS</code> response into a bounded
+ * queue. During a call that takes many items, a background thread reads from
+ * the socket, so reading overlaps with the processing of the items already
+ * fetched; the thread blocks when the queue is full. An error of the reader
+ * is thrown by the next call that needs an item that was not read.
+ * </p>
+ * <p>
+ * The server VM stops or freezes threads at the end of a call, so the reader
+ * only runs between {@link #start()} and {@link #stop()}, which the session
+ * calls within one call. {@link #stop()} waits until the reader has finished
+ * the item it is decoding. Between these calls, the items are read on the
+ * caller thread, after the queued ones. Like a {@link StreamingCursor}, the
+ * cursor has to be closed before any other command is sent.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class PrefetchCursor extends ResultCursor implements Runnable {
+
+	/** Milliseconds between checks of the reader thread. */
+	private static final long POLL = 100;
+	/** Marks the end of the items. */
+	private static final Item END = new Item(0, null, null);
+
+	/** The session codec. */
+	private final WireCodec codec;
+	/** Items decoded but not consumed. */
+	private final ArrayBlockingQueue<Item> queue;
+	/** The reader thread, null if none was started. */
+	private Thread reader;
+	/** Set to end the reader after the item it is decoding. */
+	private volatile boolean stopping;
+	/** Item decoded by a stopped reader when the queue was full. */
+	private volatile Item overflow;
+	/** Set by the reader from the start of an item until it is queued. */
+	private volatile boolean reading;
+	/** Set when the whole response has been read. */
+	private volatile boolean read;
+	/** Set if the reader ended inside an item, so the response is lost. */
+	private boolean broken;
+	/** Next item, taken from the queue but not consumed. */
+	private Item head;
+
+	/**
+	 * Creates the cursor on the pending <code>QRY_RESULTS</code> response.
+	 *
+	 * @param codec
+	 *            The session codec.
+	 * @param capacity
+	 *            Maximum number of items read ahead.
+	 */
+	PrefetchCursor(final WireCodec codec, final int capacity) {
+		this.codec = codec;
+		queue = new ArrayBlockingQueue<Item>(Math.max(capacity, 1));
+	}
+
+	/**
+	 * Starts reading ahead on a background thread, unless it is running or
+	 * the response has been read.
+	 */
+	void start() {
+		if (read || broken || reader != null && reader.isAlive() || overflow != null)
+			return;
+		stopping = false;
+		reader = new Thread(this, "BaseX prefetch");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Stops reading ahead and waits until the reader has finished the item it
+	 * is decoding. The items read are kept.
+	 *
+	 * @throws IOException
+	 *             Interrupted.
+	 */
+	void stop() throws IOException {
+		if (reader == null)
+			return;
+		stopping = true;
+		try {
+			reader.join();
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while stopping the reader.", e);
+		}
+		reader = null;
+	}
+
+	@Override
+	public void run() {
+		// the flag is not cleared in a finally block: a reader stopped from
+		// outside before the item was queued leaves it set
+		while (!stopping) {
+			reading = true;
+			final Item item = read();
+			try {
+				while (!queue.offer(item, POLL, TimeUnit.MILLISECONDS)) {
+					if (stopping) {
+						overflow = item;
+						break;
+					}
+				}
+			} catch (InterruptedException e) {
+				overflow = item;
+			}
+			reading = false;
+			if (item == END || item.error != null || overflow != null)
+				return;
+		}
+	}
+
+	@Override
+	boolean more() throws IOException {
+		if (head == null)
+			head = take();
+		if (head.error != null)
+			throw head.error;
+		return head != END;
+	}
+
+	@Override
+	int type() throws IOException {
+		return more() ? head.type : 0;
+	}
+
+	@Override
+	byte[] peek() throws IOException {
+		return more() ? head.bytes : null;
+	}
+
+	@Override
+	byte[] next() throws IOException {
+		final byte[] item = peek();
+		if (item != null)
+			head = null;
+		return item;
+	}
+
+	@Override
+	long heapBytes() {
+		long bytes = head == null || head.bytes == null ? 0 : head.bytes.length;
+		for (final Item item : queue)
+			bytes += item.bytes == null ? 0 : item.bytes.length;
+		final Item item = overflow;
+		return bytes + (item == null || item.bytes == null ? 0 : item.bytes.length);
+	}
+
+	@Override
+	void close() throws IOException {
+		stop();
+		queue.clear();
+		overflow = null;
+		head = END;
+		if (broken)
+			throw new IOException("The result was cut off inside an item.");
+		while (!read)
+			read();
+	}
+
+	/**
+	 * @return if the reader ended inside an item or before it queued one, so
+	 *         the rest of the response cannot be told from the next answers.
+	 */
+	boolean broken() {
+		return broken;
+	}
+
+	/**
+	 * Takes the next item from the queue or, if the reader is not running,
+	 * from the socket.
+	 *
+	 * @return the item.
+	 * @throws IOException
+	 *             Interrupted, or the reader ended inside an item.
+	 */
+	private Item take() throws IOException {
+		try {
+			while (true) {
+				final Item item = queue.poll(reader == null ? 0 : POLL, TimeUnit.MILLISECONDS);
+				if (item != null)
+					return item;
+				if (reader == null || !reader.isAlive()) {
+					if (!queue.isEmpty())
+						continue;
+					if (reading)
+						broken = true;
+					if (broken)
+						throw new IOException("The result was cut off inside an item.");
+					final Item rest = overflow;
+					if (rest != null) {
+						overflow = null;
+						return rest;
+					}
+					return read ? END : read();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while reading the result.", e);
+		}
+	}
+
+	/**
+	 * Decodes the next item from the socket.
+	 *
+	 * @return the item, {@link #END}, or an item holding the error.
+	 */
+	private Item read() {
+		try {
+			final int type = codec.read();
+			if (type <= 0) {
+				read = true;
+				if (codec.read() != 0)
+					return new Item(0, null, new IOException(codec.readString()));
+				return END;
+			}
+			final ByteArrayOutputStream os = new ByteArrayOutputStream();
+			codec.readEscaped(os);
+			return new Item(type, os.toByteArray(), null);
+		} catch (IOException e) {
+			read = true;
+			return new Item(0, null, e);
+		}
+	}
+
+	/**
+	 * A decoded item, or the error that ended the response.
+	 */
+	private static final class Item {
+		/** Type code. */
+		final int type;
+		/** The item as UTF-8 bytes. */
+		final byte[] bytes;
+		/** The error, or null. */
+		final IOException error;
+
+		/**
+		 * @param type
+		 *            Type code.
+		 * @param bytes
+		 *            The item.
+		 * @param error
+		 *            The error.
+		 */
+		Item(final int type, final byte[] bytes, final IOException error) {
+			this.type = type;
+			this.bytes = bytes;
+			this.error = error;
+		}
+	}
+}
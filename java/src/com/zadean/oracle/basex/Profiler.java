@@ -0,0 +1,162 @@
+package com.zadean.oracle.basex;
+
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Slow-query log for all sessions of the database session. An execution
+ * that takes longer than the threshold on the client is written to the
+ * <code>basex_slow_queries</code> table, with the phases of the server
+ * timing in <code>QRY_INFO</code> and the client time spent writing the
+ * result to the LOB. The rest of the client time is counted as network
+ * time.
+ * </p>
+ * <p>
+ * <code>QRY_INFO</code> is only requested for executions above the
+ * threshold, since the server time cannot be longer than the client time.
+ * The row is inserted in the transaction of the caller.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class Profiler {
+
+	/** Inserts one slow query. */
+	private static final String INSERT = "insert into basex_slow_queries (session_id, query_hash, query_text, "
+			+ "variables, parsing_ms, compiling_ms, evaluating_ms, printing_ms, server_ms, network_ms, lob_ms, "
+			+ "total_ms) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	/** A timing line of <code>QRY_INFO</code>. */
+	private static final Pattern PHASE = Pattern
+			.compile("^\\s*(Parsing|Compiling|Evaluating|Printing|Total Time):\\s*([0-9.]+)\\s*ms", Pattern.MULTILINE);
+	/** Longest list of variable names stored. */
+	private static final int MAX_VARIABLES = 4000;
+	/** Longest query text that is bound as a string instead of a CLOB. */
+	private static final int MAX_BIND = 4000;
+
+	/** Threshold in nanoseconds, negative if the log is off. */
+	private static long threshold = -1;
+
+	/** Not instantiable. */
+	private Profiler() {
+	}
+
+	/**
+	 * Sets the threshold.
+	 *
+	 * @param millis
+	 *            Threshold in milliseconds, negative to switch the log off.
+	 */
+	static void threshold(final int millis) {
+		threshold = millis < 0 ? -1 : millis * 1000000L;
+	}
+
+	/**
+	 * @return if executions are profiled.
+	 */
+	static boolean enabled() {
+		return threshold >= 0;
+	}
+
+	/**
+	 * @param nanos
+	 *            Client time of an execution.
+	 * @return if the execution is logged.
+	 */
+	static boolean slow(final long nanos) {
+		return threshold >= 0 && nanos >= threshold;
+	}
+
+	/**
+	 * Writes a slow execution to the log table.
+	 *
+	 * @param session
+	 *            Session ID.
+	 * @param query
+	 *            The query.
+	 * @param info
+	 *            The <code>QRY_INFO</code> text.
+	 * @param nanos
+	 *            Client time.
+	 * @param lobNanos
+	 *            Client time spent writing to the LOB.
+	 * @throws SQLException
+	 */
+	static void log(final int session, final ResultCache.Query query, final String info, final long nanos,
+			final long lobNanos) throws SQLException {
+		Double parsing = null, compiling = null, evaluating = null, printing = null, server = null;
+		final Matcher m = PHASE.matcher(info == null ? "" : info);
+		while (m.find()) {
+			final Double ms;
+			try {
+				ms = Double.valueOf(m.group(2));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			final String phase = m.group(1);
+			if ("Parsing".equals(phase))
+				parsing = ms;
+			else if ("Compiling".equals(phase))
+				compiling = ms;
+			else if ("Evaluating".equals(phase))
+				evaluating = ms;
+			else if ("Printing".equals(phase))
+				printing = ms;
+			else
+				server = ms;
+		}
+		final double total = nanos / 1e6, lob = lobNanos / 1e6;
+		final double network = Math.max(0, total - lob - (server == null ? 0 : server.doubleValue()));
+		String variables = query.variables();
+		if (variables.length() > MAX_VARIABLES)
+			variables = variables.substring(0, MAX_VARIABLES);
+
+		final PreparedStatement insert = Database.connection().prepareStatement(INSERT);
+		Clob text = null;
+		try {
+			insert.setInt(1, session);
+			insert.setString(2, query.hash());
+			if (query.text().length() > MAX_BIND) {
+				text = Database.clob(query.text());
+				insert.setClob(3, text);
+			} else {
+				insert.setString(3, query.text());
+			}
+			insert.setString(4, variables.length() == 0 ? null : variables);
+			number(insert, 5, parsing);
+			number(insert, 6, compiling);
+			number(insert, 7, evaluating);
+			number(insert, 8, printing);
+			number(insert, 9, server);
+			insert.setDouble(10, network);
+			insert.setDouble(11, lob);
+			insert.setDouble(12, total);
+			insert.executeUpdate();
+		} finally {
+			if (text != null)
+				text.free();
+			insert.close();
+		}
+	}
+
+	/**
+	 * @param statement
+	 *            The statement.
+	 * @param index
+	 *            Parameter index.
+	 * @param value
+	 *            The number, or null.
+	 * @throws SQLException
+	 */
+	private static void number(final PreparedStatement statement, final int index, final Double value)
+			throws SQLException {
+		if (value == null)
+			statement.setNull(index, Types.NUMERIC);
+		else
+			statement.setDouble(index, value.doubleValue());
+	}
+}
@@ -0,0 +1,357 @@
+package com.zadean.oracle.basex;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * Results of read-only queries, shared by all sessions of the database
+ * session and kept across calls. An entry is found by the server, the open
+ * database, the query text, the bound variables and the context; it expires
+ * after the time to live that was set when it was stored. The entries fit
+ * into a byte budget, the least recently used ones are dropped first.
+ * </p>
+ * <p>
+ * Add, replace, delete and store through this client drop the entries of the
+ * database written to, and those of queries that ran without an open
+ * database, since they may read any database. Changes made by other clients
+ * are only seen when the entries expire. Returned to SQL as
+ * <code>basex_cache_stats</code>.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class ResultCache {
+
+	/** SQL object type of the counters. */
+	static final String TYPE = "BASEX_CACHE_STATS";
+
+	/** Entries by key, least recently used first. */
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	/** Time to live of new entries in milliseconds, 0 if the cache is off. */
+	private static long ttl;
+	/** Maximum number of bytes of all entries. */
+	private static long budget;
+	/** Bytes of all entries. */
+	private static long used;
+	/** Results found in the cache. */
+	private static long hits;
+	/** Results that had to be fetched. */
+	private static long misses;
+	/** Entries dropped for the budget. */
+	private static long evictions;
+	/** Entries dropped by writes or explicitly. */
+	private static long invalidations;
+
+	/** Not instantiable. */
+	private ResultCache() {
+	}
+
+	/**
+	 * Sets the time to live of new entries and the byte budget. Entries
+	 * beyond a smaller budget are dropped; a time to live of 0 switches the
+	 * cache off and drops all entries.
+	 *
+	 * @param seconds
+	 *            Time to live.
+	 * @param bytes
+	 *            Byte budget.
+	 */
+	static void configure(final int seconds, final long bytes) {
+		ttl = Math.max(0, seconds) * 1000L;
+		budget = Math.max(0, bytes);
+		if (ttl == 0 || budget == 0) {
+			ttl = 0;
+			invalidate(null, null);
+		}
+		trim();
+	}
+
+	/**
+	 * @return if results are cached.
+	 */
+	static boolean enabled() {
+		return ttl > 0;
+	}
+
+	/**
+	 * Looks up a result and counts a hit or a miss.
+	 *
+	 * @param key
+	 *            Key of the result.
+	 * @return the result, or null if there is none or it has expired.
+	 */
+	static String get(final String key) {
+		final Entry entry = entries.get(key);
+		if (entry != null && entry.expires <= System.currentTimeMillis()) {
+			remove(key);
+			misses++;
+			return null;
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.result;
+	}
+
+	/**
+	 * Stores a result.
+	 *
+	 * @param key
+	 *            Key of the result.
+	 * @param server
+	 *            Host and port of the server.
+	 * @param database
+	 *            The open database, or null.
+	 * @param result
+	 *            The result, null if it was too large.
+	 */
+	static void put(final String key, final String server, final String database, final String result) {
+		if (!enabled() || result == null)
+			return;
+		remove(key);
+		final Entry entry = new Entry(server, database, result, System.currentTimeMillis() + ttl);
+		if (entry.size > budget)
+			return;
+		entries.put(key, entry);
+		used += entry.size;
+		trim();
+	}
+
+	/**
+	 * Drops the entries of a database, together with those of queries that
+	 * ran without an open database.
+	 *
+	 * @param server
+	 *            Host and port of the server, null for all servers.
+	 * @param database
+	 *            The database, null for all databases.
+	 */
+	static void invalidate(final String server, final String database) {
+		for (final Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+			final Entry entry = it.next();
+			if (server != null && !server.equals(entry.server))
+				continue;
+			if (database == null || entry.database == null || database.equals(entry.database)) {
+				it.remove();
+				used -= entry.size;
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Converts the counters to a <code>basex_cache_stats</code>.
+	 *
+	 * @return the object.
+	 * @throws SQLException
+	 */
+	static Struct toStruct() throws SQLException {
+		return Database.struct(TYPE, new Object[] { Long.valueOf(hits), Long.valueOf(misses),
+				Integer.valueOf(entries.size()), Long.valueOf(used), Long.valueOf(evictions),
+				Long.valueOf(invalidations) });
+	}
+
+	/**
+	 * Sets the counters to zero.
+	 */
+	static void reset() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		invalidations = 0;
+	}
+
+	/**
+	 * Drops the least recently used entries until the budget is kept.
+	 */
+	private static void trim() {
+		for (final Iterator<Entry> it = entries.values().iterator(); used > budget && it.hasNext();) {
+			used -= it.next().size;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * @param key
+	 *            Key of an entry to drop.
+	 */
+	private static void remove(final String key) {
+		final Entry entry = entries.remove(key);
+		if (entry != null)
+			used -= entry.size;
+	}
+
+	/**
+	 * A cached result.
+	 */
+	private static final class Entry {
+		/** Host and port of the server. */
+		final String server;
+		/** The open database, or null. */
+		final String database;
+		/** The result. */
+		final String result;
+		/** Expiry time in milliseconds. */
+		final long expires;
+		/** Approximate size in bytes. */
+		final long size;
+
+		/**
+		 * @param server
+		 *            Host and port of the server.
+		 * @param database
+		 *            The open database.
+		 * @param result
+		 *            The result.
+		 * @param expires
+		 *            Expiry time.
+		 */
+		Entry(final String server, final String database, final String result, final long expires) {
+			this.server = server;
+			this.database = database;
+			this.result = result;
+			this.expires = expires;
+			size = 2L * result.length() + 64;
+		}
+	}
+
+	/**
+	 * What a registered query reads: its text, the bound variables and the
+	 * context. Also kept for the slow-query log.
+	 */
+	static final class Query {
+		/** The query text. */
+		private final String text;
+		/** Bound values and types by variable name. */
+		private final TreeMap<String, String> bindings = new TreeMap<String, String>();
+		/** The bound context and its type, or null. */
+		private String context;
+
+		/**
+		 * @param text
+		 *            The query text.
+		 */
+		Query(final String text) {
+			this.text = text;
+		}
+
+		/**
+		 * @param name
+		 *            Name of the variable.
+		 * @param value
+		 *            The bound value.
+		 * @param type
+		 *            Type of the value.
+		 */
+		void bind(final String name, final String value, final String type) {
+			bindings.put(name, type + '\0' + value);
+		}
+
+		/**
+		 * @param value
+		 *            The bound context.
+		 * @param type
+		 *            Type of the context.
+		 */
+		void context(final String value, final String type) {
+			context = type + '\0' + value;
+		}
+
+		/**
+		 * @return the query text.
+		 */
+		String text() {
+			return text;
+		}
+
+		/**
+		 * @return digest of the query text.
+		 */
+		String hash() {
+			return Session.md5Utf8(text);
+		}
+
+		/**
+		 * @return the names of the bound variables, separated by commas.
+		 */
+		String variables() {
+			final StringBuilder sb = new StringBuilder();
+			for (final String name : bindings.keySet())
+				sb.append(sb.length() == 0 ? "" : ",").append(name);
+			return sb.toString();
+		}
+
+		/**
+		 * @param server
+		 *            Host and port of the server.
+		 * @param database
+		 *            The open database, or null.
+		 * @return the key of the result of the query.
+		 */
+		String key(final String server, final String database) {
+			final StringBuilder sb = new StringBuilder(text.length() + 64);
+			sb.append(server).append('\0').append(database).append('\0').append(text);
+			for (final Map.Entry<String, String> binding : bindings.entrySet())
+				sb.append('\0').append(binding.getKey()).append('\0').append(binding.getValue());
+			sb.append('\0').append(context);
+			return Session.md5Utf8(sb.toString());
+		}
+	}
+
+	/**
+	 * Writer that passes a result on and keeps a copy for the cache, unless
+	 * the result is larger than the budget.
+	 */
+	static final class Capture extends Writer {
+		/** The output. */
+		private final Writer target;
+		/** The copy, null once it got too large. */
+		private StringBuilder copy = new StringBuilder();
+
+		/**
+		 * @param target
+		 *            The output.
+		 */
+		Capture(final Writer target) {
+			this.target = target;
+		}
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) throws IOException {
+			target.write(cbuf, off, len);
+			if (copy != null) {
+				if (2L * (copy.length() + len) > budget)
+					copy = null;
+				else
+					copy.append(cbuf, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			target.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			target.close();
+		}
+
+		/**
+		 * @return the result, or null if it was too large.
+		 */
+		String result() {
+			return copy == null ? null : copy.toString();
+		}
+	}
+}
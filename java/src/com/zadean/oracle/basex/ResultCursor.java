@@ -0,0 +1,96 @@
+package com.zadean.oracle.basex;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Iterates over the items returned by <code>QRY_RESULTS</code> for one query.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+abstract class ResultCursor {
+
+	/** The encoding for all character streams. */
+	static final String UTF8 = "UTF-8";
+
+	/**
+	 * Checks for more items.
+	 * 
+	 * @return true if there is a next item.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	abstract boolean more() throws IOException;
+
+	/**
+	 * Returns the type of the next item, as listed in
+	 * <code>org.basex.query.value.type.Type</code>: 7 for functions, 8 to 15
+	 * for nodes, 32 and above for atomic values.
+	 * 
+	 * @return the type, or 0 if there are no more items.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	abstract int type() throws IOException;
+
+	/**
+	 * Returns the next item as UTF-8 bytes without moving on to the item
+	 * after it.
+	 * 
+	 * @return the item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	abstract byte[] peek() throws IOException;
+
+	/**
+	 * Returns the next item as UTF-8 bytes.
+	 * 
+	 * @return the item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	abstract byte[] next() throws IOException;
+
+	/**
+	 * Writes the next item onto the output. Nothing is written if there are
+	 * no more items.
+	 * 
+	 * @param output
+	 *            Character output.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	void next(final Writer output) throws IOException {
+		final byte[] item = next();
+		if (item != null)
+			output.write(new String(item, UTF8));
+	}
+
+	/**
+	 * Returns the number of item bytes the cursor holds on the heap.
+	 * 
+	 * @return the number of bytes.
+	 */
+	long heapBytes() {
+		return 0;
+	}
+
+	/**
+	 * Returns the number of bytes the cursor holds in a temporary LOB.
+	 * 
+	 * @return the number of bytes.
+	 */
+	long spilledBytes() {
+		return 0;
+	}
+
+	/**
+	 * Releases the cursor. Items that have not been read yet are discarded.
+	 * 
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	void close() throws IOException {
+	}
+}
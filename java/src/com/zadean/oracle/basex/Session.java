@@ -0,0 +1,1934 @@
+package com.zadean.oracle.basex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One client session with a BaseX server: the socket, its codec and the
+ * result cursors of the queries registered in this session. Sessions are
+ * created and looked up by {@link BaseXClient}.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class Session {
+
+	/** The encoding for all character streams. */
+	private static final String UTF8 = "UTF-8";
+
+	/** The socket being used by all calls. */
+	private Socket socket;
+	/** Channel transport of the socket, or null for the socket streams. */
+	private ChannelTransport transport;
+	/** Buffered, escaping reader and writer on the socket streams. */
+	private WireCodec codec;
+
+	/** Session ID */
+	final int id;
+	/** Host and port of the server */
+	private final String server;
+	/** Database opened by the last command, as far as known */
+	private String database;
+	/** Text and bindings of the queries registered while the result cache or slow-query log was on */
+	private final HashMap<String, ResultCache.Query> registered = new HashMap<String, ResultCache.Query>();
+	/** If a query updates, by query ID, once asked */
+	private final HashMap<String, Boolean> updates = new HashMap<String, Boolean>();
+	/** Info string */
+	private String info;
+	/** Query result cursors */
+	private final HashMap<String, ResultCursor> cache = new HashMap<String, ResultCursor>();
+	/** Time of the last use of each query in milliseconds, least recently used first */
+	private final LinkedHashMap<String, Long> used = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	/** Maximum number of open queries besides the prepared ones, 0 for no limit */
+	int maxCursors;
+	/** Milliseconds after which an unused query is closed, 0 for never */
+	long cursorTimeout;
+	/** If results are streamed from the socket instead of cached */
+	boolean streaming;
+	/** Number of result bytes a cached cursor keeps on the heap, 0 for no limit */
+	long heapBudget = CachedCursor.DEFAULT_BUDGET;
+	/** Number of items read ahead on a background thread, 0 for none */
+	int prefetch;
+	/** Streaming or prefetch cursor that has not read its whole response yet */
+	private ResultCursor active;
+	/** IDs of prepared queries by query text, least recently used first */
+	private final LinkedHashMap<String, String> prepared = new LinkedHashMap<String, String>(16, 0.75f, true);
+	/** Maximum number of prepared queries */
+	private int maxPrepared = 16;
+	/** Time of the last call in milliseconds */
+	long lastUsed = System.currentTimeMillis();
+	/** Code of the command being measured, -1 for none */
+	private int measured = -1;
+	/** Start time of the measured command in nanoseconds */
+	private long started;
+	/** Codec counters at the start of the measured command */
+	private long sentMark, receivedMark, escapesMark;
+
+	/** Maximum length of a PL/SQL VARCHAR2 in bytes */
+	private static final int MAX_STRING = 32767;
+	/** Maximum length of a <code>basex_string_list</code> element in bytes */
+	private static final int MAX_ELEMENT = 4000;
+	/** Maximum number of commands of a batch sent before an answer is read */
+	private static final int BATCH_DEPTH = 16;
+	/** Text commands that change the open database */
+	private static final List<String> WRITES = Arrays.asList("add", "delete", "replace", "store", "rename",
+			"flush", "optimize", "restore", "alter");
+
+	// commands
+	private static final char CMD_QUERY = 0;
+	private static final char CMD_CREATE = 8;
+	private static final char CMD_ADD = 9;
+	private static final char CMD_REPLACE = 12;
+	private static final char CMD_STORE = 13;
+	// query commands
+	private static final char QRY_CLOSE = 2;
+	private static final char QRY_BIND = 3;
+	private static final char QRY_RESULTS = 4;
+	private static final char QRY_EXEC = 5;
+	private static final char QRY_INFO = 6;
+	private static final char QRY_OPTIONS = 7;
+	private static final char QRY_CONTEXT = 14;
+
+	private static final char QRY_UPDATING = 30;
+	// private static final char QRY_FULL = 31;
+
+	/**
+	 * Creates a client session with the given credentials and the default
+	 * socket options.
+	 * 
+	 * @param id
+	 *            Session ID
+	 * @param host
+	 *            Host
+	 * @param port
+	 *            Port
+	 * @param username
+	 *            User
+	 * @param password
+	 *            Password
+	 * @throws IOException
+	 *             Access denied, no server
+	 */
+	Session(final int id, final String host, final int port, final String username, final String password)
+			throws IOException {
+		this(id, host, port, username, password, new SocketOptions());
+	}
+
+	/**
+	 * Creates a client session with the given credentials.
+	 * 
+	 * @param id
+	 *            Session ID
+	 * @param host
+	 *            Host
+	 * @param port
+	 *            Port
+	 * @param username
+	 *            User
+	 * @param password
+	 *            Password
+	 * @param options
+	 *            Transport, TCP options and timeouts.
+	 * @throws IOException
+	 *             Access denied, no server
+	 */
+	Session(final int id, final String host, final int port, final String username, final String password,
+			final SocketOptions options) throws IOException {
+		this.id = id;
+		server = host + ':' + port;
+		if (options.nio) {
+			transport = new ChannelTransport(host, port, options);
+			socket = transport.socket();
+			codec = new WireCodec(transport.input, transport.output);
+		} else {
+			socket = options.connect(host, port);
+			codec = new WireCodec(SocketOptions.input(socket), socket.getOutputStream());
+		}
+
+		// receive server response
+		final String[] response = readLine().split(":");
+		final String code, nonce;
+		if (response.length > 1) {
+			// support for digest authentication
+			code = username + ':' + response[0] + ':' + password;
+			nonce = response[1];
+		} else {
+			// support for cram-md5 (Version < 8.0)
+			code = password;
+			nonce = response[0];
+		}
+
+		writeLine(username);
+		writeLine(md5(md5(code) + nonce));
+
+		// receive success flag
+		if (!ok()) {
+			disconnect();
+			throw new IOException("Access denied.");
+		}
+	}
+
+	/**
+	 * Closes an open session. Attempts to neatly close the session on the
+	 * server, closes the socket and frees the cursors to avoid resource leaks.
+	 */
+	void close() {
+		if (codec == null)
+			return;
+		if (!isClosed()) {
+			try {
+				check();
+				closePrepared();
+				writeLine("exit");
+				codec.flush();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		try {
+			disconnect();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		// streaming cursors were drained by check(), this frees spilled results
+		for (final ResultCursor cursor : cache.values()) {
+			try {
+				if (cursor != null)
+					cursor.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		socket = null;
+		transport = null;
+		codec = null;
+		active = null;
+		cache.clear();
+		used.clear();
+		prepared.clear();
+		registered.clear();
+		updates.clear();
+	}
+
+	/**
+	 * Executes a command and returns the result. Sets the
+	 * {@link Session#info()} value.
+	 * 
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            The results of the command.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	void execute(final String command, Clob output, final boolean append) throws IOException, SQLException {
+		check();
+		begin(Metrics.COMMAND);
+		final Writer out = LobOutput.writer(output, append);
+		writeLine(command);
+		readLine(out);
+		info = readLine();
+		if (!ok())
+			throw new IOException(info);
+		executed(command);
+	}
+
+	/**
+	 * Returns the information string for the last command run that sets it.
+	 * 
+	 * @return The info string.
+	 */
+	String info() {
+		return info;
+	}
+
+	/**
+	 * Creates a database. Sets the {@link Session#info()} value.
+	 * 
+	 * @param name
+	 *            Database name.
+	 * @param input
+	 *            XML input to initialize the database.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void create(final String name, Clob input) throws IOException, SQLException {
+		check();
+		begin(CMD_CREATE);
+		write(CMD_CREATE);
+		writeLine(name);
+		write(input);
+		writeLine();
+		info = readLine();
+		ResultCache.invalidate(server, name);
+		if (Dedup.enabled)
+			Dedup.forget(server, name, null);
+		if (!ok())
+			throw new IOException(info);
+		database = name;
+	}
+
+	/**
+	 * Adds a document to the currently open database. Sets the
+	 * {@link Session#info()} value.
+	 * 
+	 * @param path
+	 *            Path of the document to add.
+	 * @param input
+	 *            The document to add.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void add(final String path, Clob input) throws IOException, SQLException {
+		send(CMD_ADD, path, input);
+	}
+
+	/**
+	 * Replaces a document to the currently open database. Sets the
+	 * {@link Session#info()} value.
+	 * 
+	 * @param path
+	 *            Path to replace.
+	 * @param input
+	 *            Input to replace with.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void replace(final String path, Clob input) throws IOException, SQLException {
+		send(CMD_REPLACE, path, input);
+	}
+
+	/**
+	 * Sends a document with add or replace. If documents are checked for
+	 * changes and a database is open, a document with the digest stored for
+	 * its path is not sent; otherwise its digest is stored once the server
+	 * accepted it. Sets the {@link Session#info()} value.
+	 * 
+	 * @param code
+	 *            {@link #CMD_ADD} or {@link #CMD_REPLACE}.
+	 * @param path
+	 *            Path of the document.
+	 * @param input
+	 *            The document.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB or digest table problem
+	 */
+	private void send(final char code, final String path, final Clob input) throws IOException, SQLException {
+		check();
+		final String db = Dedup.enabled ? database : null;
+		final Dedup.Digest digest = db == null ? null : Dedup.digest(input);
+		if (digest != null && Dedup.unchanged(server, db, path, digest)) {
+			info = "Document '" + path + "' is unchanged.";
+			return;
+		}
+		begin(code);
+		write(code);
+		writeLine(path);
+		write(input);
+		writeLine();
+		info = readLine();
+		ResultCache.invalidate(server, database);
+		if (!ok())
+			throw new IOException(info);
+		if (digest != null)
+			Dedup.sent(server, db, path, digest);
+	}
+
+	/**
+	 * Stores a binary resource in the currently open database. Sets the
+	 * {@link Session#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param input
+	 *            Raw binary input.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void store(final String path, Blob input) throws IOException, SQLException {
+		check();
+		begin(CMD_STORE);
+		write(CMD_STORE);
+		writeLine(path);
+		writeBinary(input);
+		writeLine();
+		info = readLine();
+		ResultCache.invalidate(server, database);
+		if (Dedup.enabled && database != null)
+			Dedup.forget(server, database, path);
+		if (!ok())
+			throw new IOException(info);
+	}
+
+	/**
+	 * Stores a file as a binary resource in the currently open database. The
+	 * file is read through a channel straight onto the socket. Sets the
+	 * {@link Session#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param file
+	 *            The file.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 */
+	void storeFile(final String path, final File file) throws IOException, SQLException {
+		check();
+		// opened first, a missing file must not leave a command half sent
+		final FileChannel input = new FileInputStream(file).getChannel();
+		try {
+			begin(CMD_STORE);
+			write(CMD_STORE);
+			writeLine(path);
+			boolean done = false;
+			try {
+				codec.writeEscaped(input);
+				done = true;
+			} finally {
+				if (!done)
+					abort();
+			}
+		} finally {
+			input.close();
+		}
+		writeLine();
+		info = readLine();
+		ResultCache.invalidate(server, database);
+		if (Dedup.enabled && database != null)
+			Dedup.forget(server, database, path);
+		if (!ok())
+			throw new IOException(info);
+	}
+
+	/**
+	 * Sends documents to the currently open database with add, replace or
+	 * store. Up to <code>depth</code> documents are sent before the first
+	 * acknowledgement is read, so the round trips overlap. A failed document
+	 * does not stop the others. If reading a document fails after part of it
+	 * was sent, the session is closed, since the server would take the next
+	 * bytes for the rest of the document. Sets the {@link Session#info()}
+	 * value.
+	 * 
+	 * @param command
+	 *            add, replace or store.
+	 * @param documents
+	 *            The documents to send.
+	 * @param depth
+	 *            Maximum number of unacknowledged documents.
+	 * @param all
+	 *            true to keep the status of every document, false for the
+	 *            first failed ones only.
+	 * @return The counts and statuses.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB or digest table problem
+	 */
+	IngestResult ingest(final String command, final Documents documents, final int depth, final boolean all)
+			throws IOException, SQLException {
+		final char code = ingestCode(command);
+		check();
+		// measured as a whole, the acknowledgements do not end it
+		final long start = System.nanoTime();
+		final long sent = codec.sent, received = codec.received, escapes = codec.escapes;
+		final IngestResult result = new IngestResult(all);
+		final LinkedList<String> pending = new LinkedList<String>();
+		try {
+			while (documents.next()) {
+				final String path = documents.path();
+				// opened first, a failure must not leave a command half sent
+				final InputStream binary = code == CMD_STORE ? documents.binary() : null;
+				final Reader text = code == CMD_STORE ? null : documents.text();
+				write(code);
+				writeLine(path);
+				if (binary != null)
+					writeBinary(binary);
+				if (text != null)
+					write(text);
+				writeLine();
+				pending.add(path);
+				if (pending.size() >= depth)
+					acknowledge(pending.removeFirst(), result);
+			}
+		} finally {
+			// collect the answers to all documents sent so far, unless a
+			// document was cut off and the session closed
+			while (!pending.isEmpty() && !isClosed())
+				acknowledge(pending.removeFirst(), result);
+			documents.close();
+			ResultCache.invalidate(server, database);
+			result.bytes = codec.sent - sent;
+			Metrics.record(Metrics.INGEST, System.nanoTime() - start, codec.sent - sent, codec.received - received,
+					codec.escapes - escapes);
+		}
+		return result;
+	}
+
+	/**
+	 * Executes text commands. Unless the batch stops on the first error, up
+	 * to {@link #BATCH_DEPTH} commands are sent before the first answer is
+	 * read, so the round trips overlap and a failed command does not stop the
+	 * others. Stopping on the first error needs the answer to each command
+	 * before the next is sent. Sets the {@link Session#info()} value.
+	 * 
+	 * @param commands
+	 *            The commands.
+	 * @param stopOnError
+	 *            true to skip the commands after a failed one.
+	 * @return The output and status of each command that was executed.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Digest table problem.
+	 */
+	ArrayList<CommandResult> execute(final List<String> commands, final boolean stopOnError)
+			throws IOException, SQLException {
+		for (final String command : commands) {
+			if (command == null)
+				throw new IOException("Missing command.");
+		}
+		check();
+		final int depth = stopOnError ? 1 : BATCH_DEPTH;
+		// measured as a whole, like an ingest
+		final long start = System.nanoTime();
+		final long sent = codec.sent, received = codec.received, escapes = codec.escapes;
+		final ArrayList<CommandResult> results = new ArrayList<CommandResult>(commands.size());
+		final LinkedList<String> pending = new LinkedList<String>();
+		try {
+			for (final String command : commands) {
+				if (stopOnError && !results.isEmpty() && !results.get(results.size() - 1).ok)
+					break;
+				writeLine(command);
+				pending.add(command);
+				if (pending.size() >= depth)
+					results.add(answer(pending.removeFirst()));
+			}
+		} finally {
+			while (!pending.isEmpty())
+				results.add(answer(pending.removeFirst()));
+			Metrics.record(Metrics.BATCH, System.nanoTime() - start, codec.sent - sent, codec.received - received,
+					codec.escapes - escapes);
+		}
+		return results;
+	}
+
+	/**
+	 * Retrieves a binary resource from the currently open database. Sets the
+	 * {@link Session#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param output
+	 *            Raw binary output.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void retrieve(final String path, Blob output, final boolean append) throws IOException, SQLException {
+		execute("retrieve " + path, output, append);
+	}
+
+	/**
+	 * Executes a command and returns the result as raw bytes, for commands
+	 * with binary output. Sets the {@link Session#info()} value.
+	 * 
+	 * @param command
+	 *            The command to execute.
+	 * @param output
+	 *            Raw binary output.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void execute(final String command, Blob output, final boolean append) throws IOException, SQLException {
+		check();
+		begin(Metrics.COMMAND);
+		final OutputStream out = LobOutput.stream(output, append);
+		writeLine(command);
+		readBinary(out);
+		info = readLine();
+		if (!ok())
+			throw new IOException(info);
+		executed(command);
+	}
+
+	/**
+	 * Retrieves a binary resource from the currently open database into a
+	 * file, which is replaced. The resource is written through a channel
+	 * straight from the socket. If the command fails, the file is deleted.
+	 * Sets the {@link Session#info()} value.
+	 * 
+	 * @param path
+	 *            Path to resource.
+	 * @param file
+	 *            The file.
+	 * @throws IOException
+	 *             Communication or file problem.
+	 */
+	void retrieveFile(final String path, final File file) throws IOException {
+		check();
+		final FileChannel output = new FileOutputStream(file).getChannel();
+		try {
+			begin(Metrics.COMMAND);
+			writeLine("retrieve " + path);
+			codec.readEscaped(output);
+		} finally {
+			output.close();
+		}
+		info = readLine();
+		if (!ok()) {
+			file.delete();
+			throw new IOException(info);
+		}
+	}
+
+	/**
+	 * Deletes all documents from the currently opened database that start with
+	 * the specified path. Sets the {@link Session#info()} value.
+	 * 
+	 * @param path
+	 *            Path to delete.
+	 * @param output
+	 *            Output,
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void delete(final String path, Clob output) throws IOException, SQLException {
+		check();
+		begin(Metrics.COMMAND);
+		final Writer out = LobOutput.writer(output, false);
+		writeLine("delete " + path);
+		readLine(out);
+		info = readLine();
+		ResultCache.invalidate(server, database);
+		if (Dedup.enabled && database != null)
+			Dedup.forget(server, database, path);
+		if (!ok())
+			throw new IOException(info);
+	}
+
+	/**
+	 * Registers a query and returns the query id.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @return The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	String query(Clob query) throws IOException, SQLException {
+		if (!ResultCache.enabled() && !Profiler.enabled())
+			return query(query.getCharacterStream());
+		final String text = query.getSubString(1, (int) query.length());
+		final String queryId = query(new StringReader(text));
+		registered.put(queryId, new ResultCache.Query(text));
+		return queryId;
+	}
+
+	/**
+	 * Returns the ID of a registered query with the same text, or registers
+	 * the query if there is none. The result cursor of a reused query starts
+	 * from the beginning; bound values are kept by the server. If the cache
+	 * is full, the least recently used prepared query is closed.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @return The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	String prepare(final Clob query) throws IOException, SQLException {
+		final String text = query.getSubString(1, (int) query.length());
+		// keyed by the text itself, a digest could map two queries to one ID
+		String queryId = prepared.get(text);
+		if (queryId != null) {
+			check();
+			// the old cursor may hold a temporary BLOB with spilled results
+			final ResultCursor cursor = cache.put(queryId, null);
+			if (cursor != null)
+				cursor.close();
+			touch(queryId);
+			return queryId;
+		}
+		queryId = query(new StringReader(text));
+		if (ResultCache.enabled() || Profiler.enabled())
+			registered.put(queryId, new ResultCache.Query(text));
+		prepared.put(text, queryId);
+		trimPrepared();
+		return queryId;
+	}
+
+	/**
+	 * Sets the maximum number of prepared queries and closes the least
+	 * recently used ones above it.
+	 * 
+	 * @param size
+	 *            Maximum number of prepared queries.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	void preparedCacheSize(final int size) throws IOException {
+		maxPrepared = size;
+		if (!isClosed())
+			trimPrepared();
+	}
+
+	/**
+	 * Registers a query and returns the query id.
+	 * 
+	 * @param query
+	 *            The query text.
+	 * @return The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	private String query(final Reader query) throws IOException {
+		check();
+		begin(CMD_QUERY);
+		write(CMD_QUERY);
+		write(query);
+		writeLine();
+		final String queryId = readLine();
+		if (!ok())
+			throw new IOException(readLine());
+		// only init if ok
+		initQuery(queryId);
+		reapCursors(queryId);
+		return queryId;
+	}
+
+	/**
+	 * Checks for more items in the result cache. Fills the cache if empty.
+	 * 
+	 * @param queryId
+	 *            The query ID to check.
+	 * @return true if more.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	boolean more(String queryId) throws IOException {
+		touch(queryId);
+		ResultCursor cursor = cache.get(queryId);
+		if (cursor == null) {
+			check();
+			begin(QRY_RESULTS);
+			write(QRY_RESULTS);
+			writeLine(queryId);
+			codec.flush();
+			if (prefetch > 0) {
+				// measured until the last item has been taken
+				active = new PrefetchCursor(codec, prefetch);
+				cursor = active;
+			} else if (streaming) {
+				// measured until the last item has been read
+				active = new StreamingCursor(codec);
+				cursor = active;
+			} else {
+				cursor = new CachedCursor(codec, heapBudget);
+				end();
+			}
+			cache.put(queryId, cursor);
+		}
+		if (cursor.more())
+			return true;
+		if (cursor == active) {
+			active = null;
+			end();
+		}
+		cursor.close();
+		cache.put(queryId, null);
+		return false;
+	}
+
+	/**
+	 * Gets the next item in the result cache.
+	 * 
+	 * @param queryId
+	 *            The query ID to get the next result from.
+	 * @param output
+	 *            The next result.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void next(String queryId, Clob output) throws IOException, SQLException {
+		// just in case the LOB has been reused
+		final Writer out = LobOutput.writer(output, false);
+		if (more(queryId))
+			cache.get(queryId).next(out);
+		out.close();
+	}
+
+	/**
+	 * Gets up to the given number of items from the result cache. A batch
+	 * smaller than requested is the last one.
+	 * 
+	 * @param queryId
+	 *            The query ID to get the results from.
+	 * @param size
+	 *            Maximum number of items.
+	 * @return the items.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	ArrayList<String> nextBatch(String queryId, int size) throws IOException {
+		final ArrayList<String> items = new ArrayList<String>(Math.min(Math.max(size, 0), 1024));
+		try {
+			while (items.size() < size && more(queryId))
+				items.add(new String(ahead(cache.get(queryId)).next(), ResultCursor.UTF8));
+		} finally {
+			pause(queryId);
+		}
+		return items;
+	}
+
+	/**
+	 * Gets up to the given number of items that fit into a
+	 * <code>basex_string_list</code> element. The batch ends before an item
+	 * that is too long, so the item is not consumed and can still be read
+	 * with {@link #next(String, Clob)}.
+	 * 
+	 * @param queryId
+	 *            The query ID to get the results from.
+	 * @param size
+	 *            Maximum number of items.
+	 * @return the items.
+	 * @throws IOException
+	 *             Communication problem, or the first item is too long.
+	 */
+	ArrayList<String> nextStrings(String queryId, int size) throws IOException {
+		final ArrayList<String> items = new ArrayList<String>(Math.min(Math.max(size, 0), 1024));
+		try {
+			while (items.size() < size && more(queryId)) {
+				final ResultCursor cursor = ahead(cache.get(queryId));
+				if (cursor.peek().length > MAX_ELEMENT) {
+					if (items.isEmpty())
+						throw new IOException("Item is too long for VARCHAR2(4000), use next with a CLOB.");
+					break;
+				}
+				items.add(new String(cursor.next(), ResultCursor.UTF8));
+			}
+		} finally {
+			pause(queryId);
+		}
+		return items;
+	}
+
+	/**
+	 * Returns the type of the next item in the result cache, without moving
+	 * on.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return The type code of org.basex.query.value.type.Type, or 0 if there
+	 *         are no more items.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	int nextType(String queryId) throws IOException {
+		if (!more(queryId))
+			return 0;
+		return cache.get(queryId).type();
+	}
+
+	/**
+	 * Gets the next item in the result cache as a string. An item that does
+	 * not fit into a VARCHAR2 is not consumed.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return The item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem, or the item is too long.
+	 */
+	String nextString(String queryId) throws IOException {
+		if (!more(queryId))
+			return null;
+		final ResultCursor cursor = cache.get(queryId);
+		if (cursor.peek().length > MAX_STRING)
+			throw new IOException("Item is too long for VARCHAR2, use next with a CLOB.");
+		return new String(cursor.next(), ResultCursor.UTF8);
+	}
+
+	/**
+	 * Gets the next item in the result cache as a number. An item that is not
+	 * a number is not consumed.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return The item, or null if there are no more items.
+	 * @throws IOException
+	 *             Communication problem, or the item is not a number.
+	 */
+	BigDecimal nextNumber(String queryId) throws IOException {
+		if (!more(queryId))
+			return null;
+		final ResultCursor cursor = cache.get(queryId);
+		final BigDecimal number;
+		try {
+			number = new BigDecimal(new String(cursor.peek(), ResultCursor.UTF8).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Item is not a number.");
+		}
+		cursor.next();
+		return number;
+	}
+
+	/**
+	 * Writes the remaining items of the result into a table. Unless a
+	 * cursor has been started, the result is streamed from the socket, so
+	 * only one batch of items is held in memory whatever the streaming mode.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param sink
+	 *            The table sink.
+	 * @return The number of rows inserted.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Insert problem
+	 */
+	long sink(final String queryId, final TableSink sink) throws IOException, SQLException {
+		final boolean mode = streaming;
+		streaming = true;
+		try {
+			while (more(queryId)) {
+				final ResultCursor cursor = ahead(cache.get(queryId));
+				final int type = cursor.type();
+				sink.add(type, cursor.next());
+			}
+		} finally {
+			streaming = mode;
+			pause(queryId);
+		}
+		return sink.finish();
+	}
+
+	/**
+	 * Starts reading ahead for the rest of a call that takes many items, if
+	 * the cursor reads ahead. The call has to end with
+	 * {@link #pause(String)}.
+	 * 
+	 * @param cursor
+	 *            The cursor.
+	 * @return the cursor.
+	 */
+	private static ResultCursor ahead(final ResultCursor cursor) {
+		if (cursor instanceof PrefetchCursor)
+			((PrefetchCursor) cursor).start();
+		return cursor;
+	}
+
+	/**
+	 * Stops reading ahead at the end of a call, at the end of an item. The
+	 * server VM stops threads when the call ends, which must not happen
+	 * inside an item.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @throws IOException
+	 *             Interrupted.
+	 */
+	private void pause(final String queryId) throws IOException {
+		final ResultCursor cursor = cache.get(queryId);
+		if (cursor instanceof PrefetchCursor)
+			((PrefetchCursor) cursor).stop();
+	}
+
+	/**
+	 * Executes this query and returns the entire result.
+	 * 
+	 * @param queryId
+	 *            Query ID to execute.
+	 * @param output
+	 *            The query results.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void results(final String queryId, final Clob output, final boolean append) throws IOException, SQLException {
+		final ResultCache.Query query = registered.get(queryId);
+		if (query == null || !ResultCache.enabled()) {
+			exec(queryId, query, LobOutput.writer(output, append), System.nanoTime(), LobOutput.nanos);
+			return;
+		}
+		if (updates(queryId)) {
+			exec(queryId, query, LobOutput.writer(output, append), System.nanoTime(), LobOutput.nanos);
+			ResultCache.invalidate(server, database);
+			return;
+		}
+		final String key = query.key(server, database);
+		final String result = ResultCache.get(key);
+		if (result != null) {
+			final Writer out = LobOutput.writer(output, append);
+			out.write(result);
+			out.close();
+			return;
+		}
+		final long start = System.nanoTime(), lob = LobOutput.nanos;
+		final ResultCache.Capture out = new ResultCache.Capture(LobOutput.writer(output, append));
+		exec(queryId, query, out, start, lob);
+		ResultCache.put(key, server, database, out.result());
+	}
+
+	/**
+	 * Executes a query and logs it if it was slow.
+	 * 
+	 * @param queryId
+	 *            Query ID to execute.
+	 * @param query
+	 *            Text and bindings of the query, or null if not known.
+	 * @param out
+	 *            Output, closed afterwards.
+	 * @param start
+	 *            Start time of the call in nanoseconds.
+	 * @param lob
+	 *            LOB write time at the start of the call.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Log problem
+	 */
+	private void exec(final String queryId, final ResultCache.Query query, final Writer out, final long start,
+			final long lob) throws IOException, SQLException {
+		getResults(QRY_EXEC, queryId, out);
+		profile(queryId, query, start, lob);
+	}
+
+	/**
+	 * Writes an execution that ended just now to the slow-query log if it
+	 * took longer than the threshold.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param query
+	 *            Text and bindings of the query, or null if not known.
+	 * @param start
+	 *            Start time of the call in nanoseconds.
+	 * @param lob
+	 *            LOB write time at the start of the call.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             Log problem
+	 */
+	private void profile(final String queryId, final ResultCache.Query query, final long start, final long lob)
+			throws IOException, SQLException {
+		final long nanos = System.nanoTime() - start;
+		if (query != null && Profiler.slow(nanos))
+			Profiler.log(id, query, info(queryId), nanos, LobOutput.nanos - lob);
+	}
+
+	/**
+	 * Returns if a query updates, asking the server the first time.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return true if the query updates.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	private boolean updates(final String queryId) throws IOException {
+		Boolean known = updates.get(queryId);
+		if (known == null) {
+			known = Boolean.valueOf(updating(queryId));
+			updates.put(queryId, known);
+		}
+		return known.booleanValue();
+	}
+
+	/**
+	 * Asks the server if a query updates.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return true if the query updates.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	private boolean updating(final String queryId) throws IOException {
+		check();
+		write(QRY_UPDATING);
+		writeLine(queryId);
+		final String s = readLine();
+		if (!ok())
+			throw new IOException(readLine());
+		return Boolean.parseBoolean(s);
+	}
+
+	/**
+	 * Returns query info.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @return Information about this query.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	String info(final String queryId) throws IOException {
+		check();
+		touch(queryId);
+		begin(QRY_INFO);
+		write(QRY_INFO);
+		writeLine(queryId);
+		String s = readLine();
+		if (!ok())
+			throw new IOException(readLine());
+		return s;
+	}
+
+	/**
+	 * Returns serialization parameters.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param output
+	 *            The serialization parameters.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void options(final String queryId, final Clob output) throws IOException, SQLException {
+		getClobResults(QRY_OPTIONS, queryId, output, false);
+	}
+
+	/**
+	 * Binds a value to an external variable. Sets the
+	 * {@link Session#info()}
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param name
+	 *            Name of the external variable.
+	 * @param value
+	 *            The value to bind.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void bind(final String queryId, final String name, final Clob value)
+			throws IOException, SQLException {
+		bind(queryId, name, value, "");
+	}
+
+	/**
+	 * Binds a value to an external variable. Sets the
+	 * {@link Session#info()}
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param name
+	 *            Name of the external variable.
+	 * @param value
+	 *            The value to bind.
+	 * @param type
+	 *            The type of the variable.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void bind(final String queryId, final String name, final Clob value, final String type)
+			throws IOException, SQLException {
+		check();
+		touch(queryId);
+		begin(QRY_BIND);
+		final ResultCache.Query query = registered.get(queryId);
+		// read first, a failure must not leave a command half sent
+		final String text = query == null ? null : value.getSubString(1, (int) value.length());
+		write(QRY_BIND);
+		writeLine(queryId);
+		writeLine(name);
+		if (query == null) {
+			write(value);
+		} else {
+			query.bind(name, text, type);
+			write(new StringReader(text));
+		}
+		writeLine();
+		writeLine(type);
+		info = readLine();
+		if (!ok())
+			throw new IOException(readLine());
+	}
+
+	/**
+	 * Binds values to several external variables and optionally executes the
+	 * query, in one round trip: all bind commands and the execution are sent
+	 * before the first answer is read. The server runs the execution even if
+	 * a bind failed, so it is only sent along for a query known not to
+	 * update. The first time, the binds are followed by the question if the
+	 * query updates, which is remembered for the query ID, and the query is
+	 * executed in a second round trip once all binds succeeded; an updating
+	 * query is always executed that way. Failed binds are reported together
+	 * by variable name; the output is then left unchanged. Sets the
+	 * {@link Session#info()} value.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param names
+	 *            Names of the external variables.
+	 * @param values
+	 *            The values to bind.
+	 * @param types
+	 *            The types of the variables, null or null elements for none.
+	 * @param output
+	 *            The query results, or null to only bind.
+	 * @param append
+	 *            true to append to the output, false to replace it.
+	 * @throws IOException
+	 *             Communication problem, failed binds or execution.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void bind(final String queryId, final String[] names, final Clob[] values, final String[] types,
+			final Clob output, final boolean append) throws IOException, SQLException {
+		if (values.length != names.length || types != null && types.length != names.length)
+			throw new IOException("Different numbers of names, values and types.");
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] == null || values[i] == null)
+				throw new IOException("Missing name or value of variable " + (i + 1) + '.');
+		}
+		final ResultCache.Query query = registered.get(queryId);
+		// a cacheable query is executed through the result cache
+		final boolean exec = output != null && (query == null || !ResultCache.enabled());
+		// an updating query must not run with the previous values
+		final boolean pipeline = exec && Boolean.FALSE.equals(updates.get(queryId));
+		final long start = System.nanoTime(), lob = LobOutput.nanos;
+		check();
+		touch(queryId);
+		// measured until the first answer
+		begin(QRY_BIND);
+		for (int i = 0; i < names.length; i++) {
+			final String type = types == null || types[i] == null ? "" : types[i];
+			final String text = query == null ? null : values[i].getSubString(1, (int) values[i].length());
+			write(QRY_BIND);
+			writeLine(queryId);
+			writeLine(names[i]);
+			if (query == null) {
+				write(values[i]);
+			} else {
+				query.bind(names[i], text, type);
+				write(new StringReader(text));
+			}
+			writeLine();
+			writeLine(type);
+		}
+		if (pipeline) {
+			write(QRY_EXEC);
+			writeLine(queryId);
+		} else if (exec) {
+			write(QRY_UPDATING);
+			writeLine(queryId);
+		}
+		final StringBuilder failed = new StringBuilder();
+		for (final String name : names) {
+			info = readLine();
+			if (!ok())
+				failed.append(failed.length() == 0 ? "" : "\n").append(name).append(": ").append(readLine());
+		}
+		if (exec && !pipeline) {
+			final String updating = readLine();
+			if (!ok()) {
+				final String error = readLine();
+				if (failed.length() == 0)
+					throw new IOException(error);
+			} else {
+				updates.put(queryId, Boolean.valueOf(updating));
+			}
+			if (failed.length() > 0)
+				throw new IOException("Binding failed:\n" + failed);
+			exec(queryId, query, LobOutput.writer(output, append), start, lob);
+			return;
+		}
+		if (pipeline) {
+			readLine(failed.length() == 0 ? LobOutput.writer(output, append) : new StringWriter());
+			final boolean ok = ok();
+			final String error = ok ? null : readLine();
+			if (failed.length() == 0 && !ok)
+				throw new IOException(error);
+			if (failed.length() == 0)
+				profile(queryId, query, start, lob);
+		}
+		if (failed.length() > 0)
+			throw new IOException("Binding failed:\n" + failed);
+		if (output != null && !exec)
+			results(queryId, output, append);
+	}
+
+	/**
+	 * Binds a value to the context item. Sets the {@link Session#info()}
+	 * value.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param value
+	 *            The value to bind.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void context(final String queryId, final Clob value) throws IOException, SQLException {
+		context(queryId, value, "");
+	}
+
+	/**
+	 * Binds a value to the context item. Sets the {@link Session#info()}
+	 * value.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @param value
+	 *            The value to bind.
+	 * @param type
+	 *            The type of the bound context.
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	void context(final String queryId, final Clob value, final String type)
+			throws IOException, SQLException {
+		check();
+		touch(queryId);
+		begin(QRY_CONTEXT);
+		final ResultCache.Query query = registered.get(queryId);
+		// read first, a failure must not leave a command half sent
+		final String text = query == null ? null : value.getSubString(1, (int) value.length());
+		write(QRY_CONTEXT);
+		writeLine(queryId);
+		if (query == null) {
+			write(value);
+		} else {
+			query.context(text, type);
+			write(new StringReader(text));
+		}
+		writeLine();
+		writeLine(type);
+		info = readLine();
+		if (!ok())
+			throw new IOException(readLine());
+	}
+
+	/**
+	 * Releases the query in the server. Sets the {@link Session#info()}
+	 * value.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	void close(final String queryId) throws IOException {
+		check();
+		prepared.values().remove(queryId);
+		begin(QRY_CLOSE);
+		write(QRY_CLOSE);
+		writeLine(queryId);
+		info = readLine();
+		destroyQuery(queryId);
+		if (!ok())
+			throw new IOException(readLine());
+	}
+
+	/**
+	 * Helper for simple code + queryId requests.
+	 * 
+	 * @param code
+	 * @param queryId
+	 * @param output
+	 * @param append
+	 * @throws IOException
+	 *             Communication problem.
+	 * @throws SQLException
+	 *             LOB problem
+	 */
+	private void getClobResults(final char code, final String queryId, final Clob output, final boolean append)
+			throws IOException, SQLException {
+		getResults(code, queryId, LobOutput.writer(output, append));
+	}
+
+	/**
+	 * Helper for simple code + queryId requests with a text answer.
+	 * 
+	 * @param code
+	 * @param queryId
+	 * @param out
+	 *            Output, closed afterwards.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	private void getResults(final char code, final String queryId, final Writer out) throws IOException {
+		check();
+		touch(queryId);
+		begin(code);
+		write(code);
+		writeLine(queryId);
+		readLine(out);
+		if (!ok())
+			throw new IOException(readLine());
+	}
+
+	/**
+	 * Closes the least recently used prepared queries until the cache fits
+	 * its maximum size.
+	 * 
+	 * @throws IOException
+	 */
+	private void trimPrepared() throws IOException {
+		while (prepared.size() > maxPrepared) {
+			final Iterator<String> eldest = prepared.values().iterator();
+			final String queryId = eldest.next();
+			eldest.remove();
+			close(queryId);
+		}
+	}
+
+	/**
+	 * Closes all prepared queries. The close commands are sent before the
+	 * answers are read.
+	 * 
+	 * @throws IOException
+	 */
+	private void closePrepared() throws IOException {
+		for (final String queryId : prepared.values()) {
+			write(QRY_CLOSE);
+			writeLine(queryId);
+		}
+		for (final String queryId : prepared.values()) {
+			info = readLine();
+			destroyQuery(queryId);
+			if (!ok())
+				throw new IOException(readLine());
+		}
+		prepared.clear();
+	}
+
+	/**
+	 * Follows the open database through a text command and drops the cached
+	 * results and the document digests the command may change.
+	 * 
+	 * @param command
+	 *            The command.
+	 * @throws SQLException
+	 *             Digest table problem.
+	 */
+	private void executed(final String command) throws SQLException {
+		final String[] words = command.trim().split("\\s+");
+		final String verb = words[0].toLowerCase(Locale.ROOT);
+		if (words.length > 2 && ("create".equals(verb) || "drop".equals(verb))
+				&& ("db".equalsIgnoreCase(words[1]) || "database".equalsIgnoreCase(words[1]))) {
+			// the name may be a pattern
+			final String name = words[2].matches("[\\w.-]+") ? words[2] : null;
+			ResultCache.invalidate(server, name);
+			if (Dedup.enabled)
+				Dedup.forget(server, name, null);
+			if ("create".equals(verb))
+				database = name;
+			else if (name == null || name.equals(database))
+				database = null;
+		} else if ("open".equals(verb) && words.length > 1) {
+			database = words[1];
+		} else if ("close".equals(verb)) {
+			database = null;
+		} else if (WRITES.contains(verb)) {
+			ResultCache.invalidate(server, database);
+			if (Dedup.enabled && database != null)
+				Dedup.forget(server, database, "delete".equals(verb) && words.length == 2 ? words[1] : null);
+		}
+	}
+
+	/**
+	 * Reads the answer to one command of a batch.
+	 * 
+	 * @param command
+	 *            The command.
+	 * @return The output and status.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private CommandResult answer(final String command) throws IOException, SQLException {
+		final StringWriter output = new StringWriter();
+		readLine(output);
+		info = readLine();
+		final boolean ok = ok();
+		if (ok)
+			executed(command);
+		return new CommandResult(command, ok, output.toString(), info);
+	}
+
+	/**
+	 * Reads the answer to one ingested document and forgets its digest, which
+	 * is out of date: ingested documents are not checked.
+	 * 
+	 * @param path
+	 *            Path of the document.
+	 * @param result
+	 *            Outcome of the ingest.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private void acknowledge(final String path, final IngestResult result) throws IOException, SQLException {
+		info = readLine();
+		result.add(new Status(path, ok(), info));
+		if (Dedup.enabled && database != null)
+			Dedup.forget(server, database, path);
+	}
+
+	/**
+	 * @param command
+	 *            add, replace or store.
+	 * @return The command code.
+	 * @throws IOException
+	 *             Unknown command.
+	 */
+	private static char ingestCode(final String command) throws IOException {
+		if ("add".equalsIgnoreCase(command))
+			return CMD_ADD;
+		if ("replace".equalsIgnoreCase(command))
+			return CMD_REPLACE;
+		if ("store".equalsIgnoreCase(command))
+			return CMD_STORE;
+		throw new IOException("Unknown ingest command: " + command);
+	}
+
+	/**
+	 * Setup the query result cache for this query.
+	 * 
+	 * @param queryId
+	 */
+	private void initQuery(String queryId) {
+		cache.put(queryId, null);
+		used.put(queryId, Long.valueOf(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Marks a registered query as used now.
+	 * 
+	 * @param queryId
+	 *            The query ID.
+	 */
+	private void touch(final String queryId) {
+		if (used.containsKey(queryId))
+			used.put(queryId, Long.valueOf(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Closes the queries that have not been used for longer than the cursor
+	 * timeout and, while more than the maximum number are open, the least
+	 * recently used ones, so queries that were never closed do not hold
+	 * server handles and result memory for the life of the session. Prepared
+	 * queries are limited by their own cache. The close commands are sent
+	 * before the answers are read; failures are ignored.
+	 * 
+	 * @param keep
+	 *            The query that has just been registered.
+	 * @throws IOException
+	 *             Communication problem.
+	 */
+	private void reapCursors(final String keep) throws IOException {
+		if (maxCursors <= 0 && cursorTimeout <= 0)
+			return;
+		final long now = System.currentTimeMillis();
+		int open = used.size() - prepared.size();
+		final ArrayList<String> reaped = new ArrayList<String>();
+		for (final Map.Entry<String, Long> entry : used.entrySet()) {
+			final String queryId = entry.getKey();
+			if (queryId.equals(keep) || prepared.containsValue(queryId))
+				continue;
+			// least recently used first, so the first one kept ends the search
+			if (!(maxCursors > 0 && open > maxCursors
+					|| cursorTimeout > 0 && now - entry.getValue().longValue() > cursorTimeout))
+				break;
+			reaped.add(queryId);
+			open--;
+		}
+		for (final String queryId : reaped) {
+			write(QRY_CLOSE);
+			writeLine(queryId);
+		}
+		for (final String queryId : reaped) {
+			info = readLine();
+			destroyQuery(queryId);
+			if (!ok())
+				readLine();
+		}
+	}
+
+	/**
+	 * Lists the registered queries with the memory held by their results.
+	 * 
+	 * @param cursors
+	 *            The list to add the queries to.
+	 */
+	void cursors(final List<OpenCursor> cursors) {
+		final long now = System.currentTimeMillis();
+		for (final Map.Entry<String, Long> entry : used.entrySet()) {
+			final String queryId = entry.getKey();
+			cursors.add(new OpenCursor(id, queryId, cache.get(queryId), prepared.containsValue(queryId),
+					now - entry.getValue().longValue()));
+		}
+	}
+
+	/**
+	 * Tear down the query result cache for this query.
+	 * 
+	 * @param queryId
+	 * @throws IOException
+	 *             LOB problem
+	 */
+	private void destroyQuery(String queryId) throws IOException {
+		registered.remove(queryId);
+		updates.remove(queryId);
+		used.remove(queryId);
+		final ResultCursor cursor = cache.remove(queryId);
+		if (cursor != null)
+			cursor.close();
+	}
+
+	/**
+	 * Checks the next success flag.
+	 * 
+	 * @return value of check
+	 * @throws IOException
+	 *             Exception
+	 */
+	private boolean ok() throws IOException {
+		codec.flush();
+		int got = codec.read();
+		end();
+		return got == 0;
+	}
+
+	/**
+	 * Starts measuring a command for {@link Metrics}. The measurement ends
+	 * when the success flag has been read.
+	 * 
+	 * @param code
+	 *            Command code.
+	 */
+	private void begin(final int code) {
+		measured = code;
+		started = System.nanoTime();
+		sentMark = codec.sent;
+		receivedMark = codec.received;
+		escapesMark = codec.escapes;
+	}
+
+	/**
+	 * Records the measured command, if any.
+	 */
+	private void end() {
+		if (measured < 0)
+			return;
+		Metrics.record(measured, System.nanoTime() - started, codec.sent - sentMark, codec.received - receivedMark,
+				codec.escapes - escapesMark);
+		measured = -1;
+	}
+
+	/**
+	 * Sends terminator.
+	 * 
+	 * @throws IOException
+	 */
+	private void writeLine() throws IOException {
+		codec.write('\0');
+	}
+
+	/**
+	 * Sends string plus terminator.
+	 * 
+	 * @param string
+	 * @throws IOException
+	 */
+	private void writeLine(final String string) throws IOException {
+		codec.writeString(string);
+	}
+
+	/**
+	 * Sends single byte.
+	 * 
+	 * @param cmd
+	 * @throws IOException
+	 */
+	private void write(final char cmd) throws IOException {
+		codec.write(cmd);
+	}
+
+	/**
+	 * Writes text input stream without terminator. If the input fails, part
+	 * of it may have been sent, so the session is closed.
+	 * 
+	 * @param input
+	 * @throws IOException
+	 */
+	private void write(final Reader input) throws IOException {
+		boolean done = false;
+		try {
+			// 0x00 and 0xFF will be prefixed by 0xFF
+			codec.writeEscaped(input);
+			done = true;
+		} finally {
+			if (!done)
+				abort();
+		}
+	}
+
+	/**
+	 * Writes the content of a CLOB without terminator. If the CLOB cannot be
+	 * read, the session is closed.
+	 * 
+	 * @param input
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private void write(final Clob input) throws IOException, SQLException {
+		Reader reader = null;
+		try {
+			reader = input.getCharacterStream();
+		} finally {
+			if (reader == null)
+				abort();
+		}
+		write(reader);
+	}
+
+	/**
+	 * Writes binary input stream without terminator. If the input fails, part
+	 * of it may have been sent, so the session is closed.
+	 * 
+	 * @param input
+	 * @throws IOException
+	 */
+	private void writeBinary(final InputStream input) throws IOException {
+		boolean done = false;
+		try {
+			// 0x00 and 0xFF will be prefixed by 0xFF
+			codec.writeEscaped(input);
+			done = true;
+		} finally {
+			if (!done)
+				abort();
+		}
+	}
+
+	/**
+	 * Writes the content of a BLOB without terminator. If the BLOB cannot be
+	 * read, the session is closed.
+	 * 
+	 * @param input
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private void writeBinary(final Blob input) throws IOException, SQLException {
+		InputStream stream = null;
+		try {
+			stream = input.getBinaryStream();
+		} finally {
+			if (stream == null)
+				abort();
+		}
+		writeBinary(stream);
+	}
+
+	/**
+	 * Reads text input until terminator when known to be shorter than 4000
+	 * characters.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	private String readLine() throws IOException {
+		return codec.readString();
+	}
+
+	/**
+	 * Reads text input until terminator onto output stream. The output is
+	 * closed afterwards.
+	 * 
+	 * @param output
+	 * @throws IOException
+	 */
+	private void readLine(final Writer output) throws IOException {
+		codec.readEscaped(output);
+		output.close();
+	}
+
+	/**
+	 * Reads binary input until terminator onto output stream. The output is
+	 * closed afterwards.
+	 * 
+	 * @param output
+	 * @throws IOException
+	 */
+	private void readBinary(final OutputStream output) throws IOException {
+		codec.readEscaped(output);
+		output.close();
+	}
+
+	/**
+	 * Returns an MD5 hash.
+	 * 
+	 * @param str
+	 *            String
+	 * @return String
+	 */
+	static String md5(final String str) {
+		return md5(str.getBytes());
+	}
+
+	/**
+	 * Returns the MD5 hash of the UTF-8 bytes of a string, for cache keys: the
+	 * platform charset may map different strings to the same bytes.
+	 * 
+	 * @param str
+	 *            String
+	 * @return String
+	 */
+	static String md5Utf8(final String str) {
+		return md5(str.getBytes(Charset.forName(ResultCursor.UTF8)));
+	}
+
+	/**
+	 * Returns an MD5 hash.
+	 * 
+	 * @param bytes
+	 *            The bytes
+	 * @return String
+	 */
+	private static String md5(final byte[] bytes) {
+		final StringBuilder sb = new StringBuilder();
+		try {
+			final MessageDigest md = MessageDigest.getInstance("MD5");
+			md.update(bytes);
+			byte[] ba = md.digest();
+			for (int i = 0; i < ba.length; i++) {
+				final byte b = ba[i];
+				final String s = Integer.toHexString(b & 0xFF);
+				if (s.length() == 1)
+					sb.append('0');
+				sb.append(s);
+			}
+		} catch (final NoSuchAlgorithmException ex) {
+			// should not occur
+			ex.printStackTrace();
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Closes the socket, and the channel transport if there is one.
+	 * 
+	 * @throws IOException
+	 */
+	private void disconnect() throws IOException {
+		if (transport != null)
+			transport.close();
+		else
+			socket.close();
+	}
+
+	/**
+	 * Closes the socket after a command was sent only in part. The server
+	 * would take whatever is sent next for the rest of the command, so the
+	 * connection cannot be used any more; {@link #close()} frees the rest.
+	 */
+	private void abort() {
+		try {
+			disconnect();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return if the socket is closed.
+	 */
+	boolean isClosed() {
+		if (socket == null)
+			return true;
+		return socket.isClosed();
+	}
+
+	/**
+	 * Checks if the socket can be used. A streaming or prefetch cursor that is
+	 * still reading is drained first, so the next command finds the connection in a
+	 * consistent state.
+	 * 
+	 * @throws IOException
+	 */
+	private void check() throws IOException {
+		if (isClosed())
+			throw new IOException("Socket closed.");
+		if (active != null) {
+			final ResultCursor cursor = active;
+			active = null;
+			try {
+				cursor.close();
+			} catch (final IOException e) {
+				// the rest of a cut off result cannot be told from the answers
+				if (cursor instanceof PrefetchCursor && ((PrefetchCursor) cursor).broken())
+					abort();
+				throw e;
+			}
+			end();
+		}
+	}
+}
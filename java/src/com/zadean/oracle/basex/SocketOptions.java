@@ -0,0 +1,113 @@
+package com.zadean.oracle.basex;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+/**
+ * <p>
+ * How sessions connect to the server: the transport, the TCP options and the
+ * connect and read timeouts. Read when a session is opened.
+ * </p>
+ * <p>
+ * A read that times out leaves the rest of the answer on the wire, so the
+ * socket is closed and the session has to be opened again.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class SocketOptions {
+
+	/** If the session uses a {@link ChannelTransport} instead of a socket. */
+	boolean nio;
+	/** If Nagle's algorithm is switched off. */
+	boolean tcpNoDelay = true;
+	/** If TCP keep-alive probes are sent. */
+	boolean keepAlive;
+	/** Socket send buffer size in bytes, 0 for the system default. */
+	int sendBuffer;
+	/** Socket receive buffer size in bytes, 0 for the system default. */
+	int receiveBuffer;
+	/** Connect timeout in milliseconds, 0 for none. */
+	int connectTimeout = 5000;
+	/** Read timeout in milliseconds, 0 for none. */
+	int readTimeout;
+
+	/**
+	 * Sets the TCP options on an unconnected socket.
+	 *
+	 * @param socket
+	 *            The socket.
+	 * @throws SocketException
+	 */
+	void apply(final Socket socket) throws SocketException {
+		socket.setTcpNoDelay(tcpNoDelay);
+		socket.setKeepAlive(keepAlive);
+		if (sendBuffer > 0)
+			socket.setSendBufferSize(sendBuffer);
+		// set before connecting, so a large window can be negotiated
+		if (receiveBuffer > 0)
+			socket.setReceiveBufferSize(receiveBuffer);
+	}
+
+	/**
+	 * Opens a blocking socket.
+	 *
+	 * @param host
+	 *            Host
+	 * @param port
+	 *            Port
+	 * @return the connected socket.
+	 * @throws IOException
+	 *             No server
+	 */
+	Socket connect(final String host, final int port) throws IOException {
+		final Socket socket = new Socket();
+		try {
+			apply(socket);
+			socket.setSoTimeout(readTimeout);
+			socket.connect(new InetSocketAddress(host, port), connectTimeout);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return socket;
+	}
+
+	/**
+	 * Returns the input of a blocking socket, which closes the socket when a
+	 * read times out.
+	 *
+	 * @param socket
+	 *            The connected socket.
+	 * @return the input.
+	 * @throws IOException
+	 */
+	static InputStream input(final Socket socket) throws IOException {
+		return new FilterInputStream(socket.getInputStream()) {
+			@Override
+			public int read(final byte[] b, final int off, final int len) throws IOException {
+				try {
+					return in.read(b, off, len);
+				} catch (SocketTimeoutException e) {
+					final int millis = socket.getSoTimeout();
+					socket.close();
+					throw timeout(millis);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @param millis
+	 *            The read timeout.
+	 * @return the exception for a read that timed out.
+	 */
+	static SocketTimeoutException timeout(final int millis) {
+		return new SocketTimeoutException("Read timed out after " + millis + " ms, session closed.");
+	}
+}
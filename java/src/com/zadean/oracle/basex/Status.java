@@ -0,0 +1,60 @@
+package com.zadean.oracle.basex;
+
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.util.List;
+
+import oracle.sql.ARRAY;
+
+/**
+ * Outcome of one command of a batch, returned to SQL as
+ * <code>basex_status</code>.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class Status {
+
+	/** SQL object type. */
+	static final String TYPE = "BASEX_STATUS";
+	/** SQL collection type. */
+	static final String LIST_TYPE = "BASEX_STATUS_LIST";
+
+	/** What the status is about, e.g. a document path. */
+	final String name;
+	/** If the command succeeded. */
+	final boolean ok;
+	/** Info or error message. */
+	final String info;
+
+	/**
+	 * @param name
+	 *            What the status is about.
+	 * @param ok
+	 *            If the command succeeded.
+	 * @param info
+	 *            Info or error message.
+	 */
+	Status(final String name, final boolean ok, final String info) {
+		this.name = name;
+		this.ok = ok;
+		this.info = info;
+	}
+
+	/**
+	 * Converts a list of statuses to a <code>basex_status_list</code>.
+	 * 
+	 * @param statuses
+	 *            The statuses.
+	 * @return the collection.
+	 * @throws SQLException
+	 */
+	static ARRAY toArray(final List<Status> statuses) throws SQLException {
+		final Struct[] elements = new Struct[statuses.size()];
+		for (int i = 0; i < elements.length; i++) {
+			final Status s = statuses.get(i);
+			elements[i] = Database.struct(TYPE, new Object[] { Database.varchar(s.name), Integer.valueOf(s.ok ? 1 : 0),
+					Database.varchar(s.info) });
+		}
+		return Database.array(LIST_TYPE, elements);
+	}
+}
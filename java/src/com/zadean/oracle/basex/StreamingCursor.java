@@ -0,0 +1,126 @@
+package com.zadean.oracle.basex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Decodes the items of a <code>QRY_RESULTS</code> response from the socket
+ * one at a time, so only the current item is held in memory. While the cursor
+ * is open the response is still on the wire; it has to be closed (drained)
+ * before any other command is sent.
+ * 
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class StreamingCursor extends ResultCursor {
+
+	/** Discards drained items. */
+	private static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	};
+
+	/** The session codec. */
+	private final WireCodec codec;
+	/** Type byte of the next item, 0 if not yet read. */
+	private int type;
+	/** If the whole response including the status flag has been read. */
+	private boolean done;
+	/** Next item if it has been read ahead by {@link #peek()}. */
+	private byte[] current;
+
+	/**
+	 * Creates a cursor on the pending <code>QRY_RESULTS</code> response.
+	 * 
+	 * @param codec
+	 *            The session codec.
+	 */
+	StreamingCursor(final WireCodec codec) {
+		this.codec = codec;
+	}
+
+	@Override
+	boolean more() throws IOException {
+		if (done)
+			return false;
+		if (type == 0) {
+			// the type byte announces the next item, 0 ends the sequence
+			type = codec.read();
+			if (type <= 0) {
+				type = 0;
+				done = true;
+				if (codec.read() != 0)
+					throw new IOException(codec.readString());
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	int type() throws IOException {
+		return more() ? type : 0;
+	}
+
+	@Override
+	byte[] peek() throws IOException {
+		if (!more())
+			return null;
+		if (current == null) {
+			final ByteArrayOutputStream os = new ByteArrayOutputStream();
+			codec.readEscaped(os);
+			current = os.toByteArray();
+		}
+		return current;
+	}
+
+	@Override
+	byte[] next() throws IOException {
+		final byte[] item = peek();
+		current = null;
+		type = 0;
+		return item;
+	}
+
+	@Override
+	void next(final Writer output) throws IOException {
+		if (!more())
+			return;
+		if (current != null)
+			output.write(new String(current, UTF8));
+		else
+			codec.readEscaped(output);
+		current = null;
+		type = 0;
+	}
+
+	/**
+	 * @return if the response has been read completely.
+	 */
+	boolean isDone() {
+		return done;
+	}
+
+	@Override
+	long heapBytes() {
+		return current == null ? 0 : current.length;
+	}
+
+	@Override
+	void close() throws IOException {
+		if (current != null) {
+			current = null;
+			type = 0;
+		}
+		while (more()) {
+			codec.readEscaped(DISCARD);
+			type = 0;
+		}
+	}
+}
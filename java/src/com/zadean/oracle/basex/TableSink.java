@@ -0,0 +1,171 @@
+package com.zadean.oracle.basex;
+
+import java.io.UnsupportedEncodingException;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Writes query result items into a table of the calling session with JDBC
+ * batch inserts. Each item becomes one row; the item goes into the item
+ * column, its type code optionally into a second column. At most one batch of
+ * items is held in memory.
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class TableSink {
+
+	/** A plain or quoted SQL name, optionally qualified. */
+	private static final Pattern NAME = Pattern
+			.compile("(\"[^\"]+\"|[A-Za-z][\\w$#]*)(\\.(\"[^\"]+\"|[A-Za-z][\\w$#]*))?");
+	/** Longest item in bytes that is bound as a string instead of a CLOB. */
+	private static final int MAX_BIND = 4000;
+
+	/** The connection of the calling session. */
+	private final Connection connection;
+	/** The insert statement. */
+	private final PreparedStatement insert;
+	/** If the type code is inserted too. */
+	private final boolean typed;
+	/** Rows per batch. */
+	private final int batchSize;
+	/** Rows per commit, 0 to leave committing to the caller. */
+	private final int commitInterval;
+	/** Temporary CLOBs bound in the current batch. */
+	private final ArrayList<Clob> clobs = new ArrayList<Clob>();
+	/** Rows in the current batch. */
+	private int batched;
+	/** Rows inserted since the last commit. */
+	private long uncommitted;
+	/** Rows inserted. */
+	private long rows;
+
+	/**
+	 * Prepares the insert statement.
+	 *
+	 * @param table
+	 *            Name of the table.
+	 * @param column
+	 *            Name of the item column.
+	 * @param typeColumn
+	 *            Name of the type column, or null for none.
+	 * @param batchSize
+	 *            Rows per batch.
+	 * @param commitInterval
+	 *            Rows per commit, 0 to never commit.
+	 * @throws SQLException
+	 *             Invalid name or statement.
+	 */
+	TableSink(final String table, final String column, final String typeColumn, final int batchSize,
+			final int commitInterval) throws SQLException {
+		typed = typeColumn != null;
+		final String sql = "insert into " + name(table) + " (" + name(column)
+				+ (typed ? ", " + name(typeColumn) + ") values (?, ?)" : ") values (?)");
+		this.batchSize = Math.max(batchSize, 1);
+		this.commitInterval = Math.max(commitInterval, 0);
+		connection = Database.connection();
+		insert = connection.prepareStatement(sql);
+	}
+
+	/**
+	 * Adds an item to the current batch and sends the batch when it is full.
+	 *
+	 * @param type
+	 *            Type code of the item.
+	 * @param item
+	 *            The item as UTF-8 bytes.
+	 * @throws SQLException
+	 * @throws UnsupportedEncodingException
+	 */
+	void add(final int type, final byte[] item) throws SQLException, UnsupportedEncodingException {
+		final String value = new String(item, ResultCursor.UTF8);
+		if (item.length > MAX_BIND) {
+			final Clob clob = Database.clob(value);
+			clobs.add(clob);
+			insert.setClob(1, clob);
+		} else {
+			insert.setString(1, value);
+		}
+		if (typed)
+			insert.setInt(2, type);
+		insert.addBatch();
+		if (++batched == batchSize)
+			flush();
+	}
+
+	/**
+	 * Sends the last batch and commits if a commit interval is set.
+	 *
+	 * @return the number of rows inserted.
+	 * @throws SQLException
+	 */
+	long finish() throws SQLException {
+		flush();
+		if (commitInterval > 0 && uncommitted > 0) {
+			connection.commit();
+			uncommitted = 0;
+		}
+		return rows;
+	}
+
+	/**
+	 * Closes the statement and frees the CLOBs of an unsent batch.
+	 *
+	 * @throws SQLException
+	 */
+	void close() throws SQLException {
+		try {
+			free();
+		} finally {
+			insert.close();
+		}
+	}
+
+	/**
+	 * Sends the current batch, commits when the commit interval is reached.
+	 *
+	 * @throws SQLException
+	 */
+	private void flush() throws SQLException {
+		if (batched == 0)
+			return;
+		insert.executeBatch();
+		free();
+		rows += batched;
+		uncommitted += batched;
+		batched = 0;
+		if (commitInterval > 0 && uncommitted >= commitInterval) {
+			connection.commit();
+			uncommitted = 0;
+		}
+	}
+
+	/**
+	 * Frees the temporary CLOBs of the current batch.
+	 *
+	 * @throws SQLException
+	 */
+	private void free() throws SQLException {
+		for (final Clob clob : clobs)
+			clob.free();
+		clobs.clear();
+	}
+
+	/**
+	 * Checks a table or column name, so it can be put into the statement.
+	 *
+	 * @param name
+	 *            The name.
+	 * @return the name.
+	 * @throws SQLException
+	 *             Not a valid name.
+	 */
+	private static String name(final String name) throws SQLException {
+		if (name == null || !NAME.matcher(name).matches())
+			throw new SQLException("Invalid name: " + name);
+		return name;
+	}
+}
@@ -0,0 +1,475 @@
+package com.zadean.oracle.basex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * <p>
+ * Block based codec for the BaseX client/server protocol. Strings and
+ * streams are sent as bytes followed by a 0x00 terminator; 0x00 and 0xFF
+ * within the payload are prefixed by 0xFF.
+ * </p>
+ * <p>
+ * Instead of handling every byte with a separate call, whole buffers are
+ * scanned for the two special bytes and copied in runs. All buffers are
+ * allocated once per codec and reused for every call. Character data is
+ * encoded to and decoded from UTF-8 before escaping, so it is never encoded
+ * twice.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class WireCodec {
+
+	/** Size of all internal buffers. */
+	private static final int BUFFER_SIZE = 8192;
+	/** Escape byte. */
+	private static final int ESCAPE = 0xFF;
+	/** Terminator byte. */
+	private static final int TERMINATOR = 0x00;
+
+	/** The encoding for all character streams. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Socket input. */
+	private final InputStream in;
+	/** Socket output. */
+	private final OutputStream out;
+
+	/** Input buffer. */
+	private final byte[] inBuffer = new byte[BUFFER_SIZE];
+	/** Next position to read in the input buffer. */
+	private int inPos;
+	/** Number of valid bytes in the input buffer. */
+	private int inLimit;
+
+	/** Output buffer, written to the socket on flush or when full. */
+	private final byte[] outBuffer = new byte[BUFFER_SIZE];
+	/** Next position to write in the output buffer. */
+	private int outPos;
+
+	/** Buffer for reading caller streams. */
+	private final byte[] readBuffer = new byte[BUFFER_SIZE];
+	/** Buffer for collecting short strings. */
+	private byte[] stringBuffer = new byte[256];
+
+	/** Character to byte conversion for outgoing text. */
+	private final CharsetEncoder encoder = UTF8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	/** Byte to character conversion for incoming text. */
+	private final CharsetDecoder decoder = UTF8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	/** Characters waiting to be encoded or written. */
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+	/** Bytes waiting to be escaped or decoded. */
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+	/** Collects unescaped bytes for decoding. */
+	private final DecodingStream decoding = new DecodingStream();
+
+	/** Bytes written to the socket. */
+	long sent;
+	/** Bytes read from the socket. */
+	long received;
+	/** Escape bytes written and read. */
+	long escapes;
+
+	/**
+	 * Creates a codec on the given socket streams.
+	 *
+	 * @param in
+	 *            Socket input, not buffered.
+	 * @param out
+	 *            Socket output, not buffered.
+	 */
+	WireCodec(final InputStream in, final OutputStream out) {
+		this.in = in;
+		this.out = out;
+	}
+
+	/**
+	 * Reads a single raw byte.
+	 *
+	 * @return the byte, or -1 at the end of the stream.
+	 * @throws IOException
+	 */
+	int read() throws IOException {
+		if (inPos == inLimit && !fill())
+			return -1;
+		return inBuffer[inPos++] & 0xFF;
+	}
+
+	/**
+	 * Writes a single raw byte.
+	 *
+	 * @param b
+	 * @throws IOException
+	 */
+	void write(final int b) throws IOException {
+		if (outPos == outBuffer.length)
+			flushBuffer();
+		outBuffer[outPos++] = (byte) b;
+	}
+
+	/**
+	 * Writes raw bytes without escaping.
+	 *
+	 * @param b
+	 * @param off
+	 * @param len
+	 * @throws IOException
+	 */
+	void write(final byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (outPos == outBuffer.length)
+				flushBuffer();
+			final int n = Math.min(len, outBuffer.length - outPos);
+			System.arraycopy(b, off, outBuffer, outPos, n);
+			outPos += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Writes a string and the terminator. The string is not escaped.
+	 *
+	 * @param string
+	 * @throws IOException
+	 */
+	void writeString(final String string) throws IOException {
+		final byte[] b = string.getBytes(UTF8.name());
+		write(b, 0, b.length);
+		write(TERMINATOR);
+	}
+
+	/**
+	 * Writes bytes, prefixing 0x00 and 0xFF with 0xFF.
+	 *
+	 * @param b
+	 * @param off
+	 * @param len
+	 * @throws IOException
+	 */
+	void writeEscaped(final byte[] b, final int off, final int len) throws IOException {
+		final int end = off + len;
+		int start = off;
+		for (int i = off; i < end; i++) {
+			final int c = b[i] & 0xFF;
+			if (c == TERMINATOR || c == ESCAPE) {
+				write(b, start, i - start);
+				write(ESCAPE);
+				escapes++;
+				start = i;
+			}
+		}
+		write(b, start, end - start);
+	}
+
+	/**
+	 * Writes a binary input stream with escaping and without terminator.
+	 *
+	 * @param input
+	 * @throws IOException
+	 */
+	void writeEscaped(final InputStream input) throws IOException {
+		for (int n; (n = input.read(readBuffer)) != -1;) {
+			writeEscaped(readBuffer, 0, n);
+		}
+	}
+
+	/**
+	 * Writes a binary channel with escaping and without terminator. The
+	 * channel is read in blocks straight into the read buffer.
+	 *
+	 * @param input
+	 * @throws IOException
+	 */
+	void writeEscaped(final ReadableByteChannel input) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(readBuffer);
+		for (int n; (n = input.read(buffer)) != -1; buffer.clear()) {
+			writeEscaped(readBuffer, 0, n);
+		}
+	}
+
+	/**
+	 * Writes a character stream as UTF-8 with escaping and without
+	 * terminator.
+	 *
+	 * @param input
+	 * @throws IOException
+	 */
+	void writeEscaped(final Reader input) throws IOException {
+		encoder.reset();
+		chars.clear();
+		boolean eof = false;
+		while (!eof) {
+			final int n = input.read(chars.array(), chars.position(), chars.remaining());
+			if (n == -1)
+				eof = true;
+			else
+				chars.position(chars.position() + n);
+			chars.flip();
+			CoderResult result;
+			do {
+				bytes.clear();
+				result = encoder.encode(chars, bytes, eof);
+				writeEscaped(bytes.array(), 0, bytes.position());
+			} while (result.isOverflow());
+			chars.compact();
+		}
+		CoderResult result;
+		do {
+			bytes.clear();
+			result = encoder.flush(bytes);
+			writeEscaped(bytes.array(), 0, bytes.position());
+		} while (result.isOverflow());
+	}
+
+	/**
+	 * Reads escaped bytes until the terminator onto the output stream. The
+	 * terminator is consumed.
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	void readEscaped(final OutputStream output) throws IOException {
+		while (true) {
+			if (inPos == inLimit && !fill())
+				return;
+			final int start = inPos;
+			int i = start;
+			int c = -1;
+			while (i < inLimit) {
+				c = inBuffer[i] & 0xFF;
+				if (c == TERMINATOR || c == ESCAPE)
+					break;
+				i++;
+			}
+			if (i > start)
+				output.write(inBuffer, start, i - start);
+			inPos = i;
+			if (i == inLimit)
+				continue;
+			inPos++;
+			if (c == TERMINATOR)
+				return;
+			escapes++;
+			// the byte after 0xFF is taken as is
+			final int b = read();
+			if (b == -1)
+				return;
+			output.write(b);
+		}
+	}
+
+	/**
+	 * Reads escaped bytes until the terminator into a channel. The unescaped
+	 * bytes are collected in the read buffer, so the channel is written in
+	 * blocks. The terminator is consumed.
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	void readEscaped(final WritableByteChannel output) throws IOException {
+		final ChannelStream stream = new ChannelStream(output);
+		readEscaped(stream);
+		stream.drain();
+	}
+
+	/**
+	 * Reads escaped UTF-8 bytes until the terminator and writes the decoded
+	 * characters. The terminator is consumed.
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	void readEscaped(final Writer output) throws IOException {
+		decoder.reset();
+		bytes.clear();
+		decoding.target = output;
+		readEscaped(decoding);
+		decode(output, true);
+		CoderResult result;
+		do {
+			chars.clear();
+			result = decoder.flush(chars);
+			output.write(chars.array(), 0, chars.position());
+		} while (result.isOverflow());
+	}
+
+	/**
+	 * Reads an escaped string until the terminator.
+	 *
+	 * @return the decoded string.
+	 * @throws IOException
+	 */
+	String readString() throws IOException {
+		int len = 0;
+		for (int b; (b = read()) > 0;) {
+			// read next byte if 0xFF is received
+			if (b == ESCAPE) {
+				escapes++;
+				if ((b = read()) == -1)
+					break;
+			}
+			if (len == stringBuffer.length) {
+				final byte[] tmp = new byte[len << 1];
+				System.arraycopy(stringBuffer, 0, tmp, 0, len);
+				stringBuffer = tmp;
+			}
+			stringBuffer[len++] = (byte) b;
+		}
+		return new String(stringBuffer, 0, len, UTF8.name());
+	}
+
+	/**
+	 * Writes all buffered bytes to the socket.
+	 *
+	 * @throws IOException
+	 */
+	void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Decodes the collected bytes onto the writer.
+	 *
+	 * @param output
+	 * @param endOfInput
+	 * @throws IOException
+	 */
+	private void decode(final Writer output, final boolean endOfInput) throws IOException {
+		bytes.flip();
+		CoderResult result;
+		do {
+			chars.clear();
+			result = decoder.decode(bytes, chars, endOfInput);
+			output.write(chars.array(), 0, chars.position());
+		} while (result.isOverflow());
+		// keep an incomplete multi-byte sequence for the next round
+		bytes.compact();
+	}
+
+	/**
+	 * Writes the output buffer to the socket.
+	 *
+	 * @throws IOException
+	 */
+	private void flushBuffer() throws IOException {
+		if (outPos > 0) {
+			out.write(outBuffer, 0, outPos);
+			sent += outPos;
+			outPos = 0;
+		}
+	}
+
+	/**
+	 * Refills the input buffer. Pending output is sent first, as every read
+	 * waits for the answer to it.
+	 *
+	 * @return false at the end of the stream.
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if (outPos > 0)
+			flush();
+		final int n = in.read(inBuffer);
+		if (n <= 0)
+			return false;
+		received += n;
+		inPos = 0;
+		inLimit = n;
+		return true;
+	}
+
+	/**
+	 * Collects unescaped bytes and decodes them onto the target writer
+	 * whenever the byte buffer is full.
+	 */
+	private final class DecodingStream extends OutputStream {
+		/** Current target. */
+		private Writer target;
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (!bytes.hasRemaining())
+				decode(target, false);
+			bytes.put((byte) b);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!bytes.hasRemaining())
+					decode(target, false);
+				final int n = Math.min(len, bytes.remaining());
+				bytes.put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+	}
+
+	/**
+	 * Collects bytes in the read buffer and writes them to a channel whenever
+	 * it is full.
+	 */
+	private final class ChannelStream extends OutputStream {
+		/** The target. */
+		private final WritableByteChannel target;
+		/** The read buffer. */
+		private final ByteBuffer buffer = ByteBuffer.wrap(readBuffer);
+
+		/**
+		 * @param target
+		 *            The target channel.
+		 */
+		ChannelStream(final WritableByteChannel target) {
+			this.target = target;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (!buffer.hasRemaining())
+				drain();
+			buffer.put((byte) b);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!buffer.hasRemaining())
+					drain();
+				final int n = Math.min(len, buffer.remaining());
+				buffer.put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+
+		/**
+		 * Writes the collected bytes to the channel.
+		 *
+		 * @throws IOException
+		 */
+		void drain() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				target.write(buffer);
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package com.zadean.oracle.basex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * <p>
+ * Serializes rows of a result set to XML while it is read, in the layout of
+ * <code>DBMS_XMLGEN</code>: a row element with one child element per
+ * non-null column, named after the column label. Either only the current
+ * row is serialized, or all remaining rows inside a root element.
+ * </p>
+ * <p>
+ * Only one column value is held in memory at a time. CLOB and XMLType values
+ * are streamed, XMLType content is copied as is, binary values are encoded
+ * as base64, dates and timestamps are written as <code>xs:dateTime</code>.
+ * </p>
+ *
+ * @author Zachary N. Dean <contact[at]zadean[dot]com>
+ */
+final class XmlRows extends Reader {
+
+	/** Base64 alphabet. */
+	private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+			.toCharArray();
+
+	/** States of the serializer. */
+	private static final int ROOT = 0, NEXT_ROW = 1, ROW = 2, COLUMN = 3, DONE = 4;
+
+	/** The rows. */
+	private final ResultSet rows;
+	/** Name of the root element, null to serialize the current row only. */
+	private final String root;
+	/** Name of the row elements. */
+	private final String row;
+	/** First column to serialize. */
+	private final int first;
+	/** Element names by column. */
+	private final String[] names;
+	/** SQL types by column. */
+	private final int[] types;
+	/** If a column holds XMLType values. */
+	private final boolean[] xml;
+
+	/** Serialized characters not read yet. */
+	private final StringBuilder pending = new StringBuilder();
+	/** Read position in the pending characters. */
+	private int pendingPos;
+	/** Current state. */
+	private int state;
+	/** Current column. */
+	private int column;
+	/** Character value being streamed. */
+	private Reader text;
+	/** If the streamed value is XML and copied as is. */
+	private boolean raw;
+	/** Binary value being streamed. */
+	private InputStream binary;
+	/** Buffer for streamed characters. */
+	private final char[] chars = new char[4096];
+	/** Buffer for streamed bytes, a multiple of 3 for base64. */
+	private final byte[] bytes = new byte[3072];
+
+	/**
+	 * Creates a serializer.
+	 *
+	 * @param rows
+	 *            The rows.
+	 * @param root
+	 *            Name of the root element, or null to serialize only the
+	 *            current row.
+	 * @param row
+	 *            Name of the row elements.
+	 * @param first
+	 *            First column to serialize, counting from 1.
+	 * @throws SQLException
+	 */
+	XmlRows(final ResultSet rows, final String root, final String row, final int first) throws SQLException {
+		this.rows = rows;
+		this.root = root;
+		this.row = row;
+		this.first = first;
+		final ResultSetMetaData meta = rows.getMetaData();
+		final int count = meta.getColumnCount();
+		names = new String[count + 1];
+		types = new int[count + 1];
+		xml = new boolean[count + 1];
+		for (int c = 1; c <= count; c++) {
+			names[c] = name(meta.getColumnLabel(c));
+			types[c] = meta.getColumnType(c);
+			xml[c] = types[c] == Types.SQLXML || "SYS.XMLTYPE".equalsIgnoreCase(meta.getColumnTypeName(c));
+		}
+		state = root == null ? ROW : ROOT;
+	}
+
+	/**
+	 * Creates a serializer with the same columns for the current row.
+	 *
+	 * @param columns
+	 *            Serializer to take the column names and types from.
+	 */
+	private XmlRows(final XmlRows columns) {
+		rows = columns.rows;
+		root = null;
+		row = columns.row;
+		first = columns.first;
+		names = columns.names;
+		types = columns.types;
+		xml = columns.xml;
+		state = ROW;
+	}
+
+	/**
+	 * @return a serializer for the current row, sharing the column metadata.
+	 */
+	XmlRows current() {
+		return new XmlRows(this);
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (pendingPos == pending.length()) {
+			pending.setLength(0);
+			pendingPos = 0;
+			try {
+				while (pending.length() == 0) {
+					if (!fill())
+						return -1;
+				}
+			} catch (SQLException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+		final int n = Math.min(len, pending.length() - pendingPos);
+		pending.getChars(pendingPos, pendingPos + n, cbuf, off);
+		pendingPos += n;
+		return n;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (text != null)
+			text.close();
+		if (binary != null)
+			binary.close();
+		text = null;
+		binary = null;
+		state = DONE;
+	}
+
+	/**
+	 * Serializes the next piece into the pending characters.
+	 *
+	 * @return false at the end.
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private boolean fill() throws IOException, SQLException {
+		if (text != null) {
+			final int n = text.read(chars);
+			if (n == -1)
+				endValue();
+			else if (raw)
+				pending.append(chars, 0, n);
+			else
+				escape(chars, n);
+			return true;
+		}
+		if (binary != null) {
+			int n = 0;
+			for (int r; n < bytes.length && (r = binary.read(bytes, n, bytes.length - n)) != -1;)
+				n += r;
+			if (n == 0)
+				endValue();
+			else
+				base64(n);
+			return true;
+		}
+		switch (state) {
+		case ROOT:
+			pending.append('<').append(root).append('>');
+			state = NEXT_ROW;
+			return true;
+		case NEXT_ROW:
+			if (rows.next()) {
+				state = ROW;
+			} else {
+				pending.append("</").append(root).append('>');
+				state = DONE;
+			}
+			return true;
+		case ROW:
+			pending.append('<').append(row).append('>');
+			column = first;
+			state = COLUMN;
+			return true;
+		case COLUMN:
+			if (column < names.length)
+				value();
+			else {
+				pending.append("</").append(row).append('>');
+				state = root == null ? DONE : NEXT_ROW;
+			}
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Serializes the current column, or starts streaming it. Null values are
+	 * left out.
+	 *
+	 * @throws SQLException
+	 */
+	private void value() throws SQLException {
+		final int c = column;
+		final String name = names[c];
+		if (xml[c]) {
+			final SQLXML value = rows.getSQLXML(c);
+			if (value != null) {
+				pending.append('<').append(name).append('>');
+				text = value.getCharacterStream();
+				raw = true;
+				return;
+			}
+		} else {
+			switch (types[c]) {
+			case Types.CLOB:
+			case Types.NCLOB:
+			case Types.LONGVARCHAR:
+			case Types.LONGNVARCHAR:
+				text = rows.getCharacterStream(c);
+				if (text != null) {
+					pending.append('<').append(name).append('>');
+					raw = false;
+					return;
+				}
+				break;
+			case Types.BLOB:
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+				binary = rows.getBinaryStream(c);
+				if (binary != null) {
+					pending.append('<').append(name).append('>');
+					return;
+				}
+				break;
+			case Types.DATE:
+			case Types.TIMESTAMP:
+				final Timestamp timestamp = rows.getTimestamp(c);
+				if (timestamp != null) {
+					String s = timestamp.toString().replace(' ', 'T');
+					if (s.endsWith(".0"))
+						s = s.substring(0, s.length() - 2);
+					element(name, s);
+				}
+				break;
+			default:
+				final String value = rows.getString(c);
+				if (value != null)
+					element(name, value);
+			}
+		}
+		column++;
+	}
+
+	/**
+	 * Ends the streamed value of the current column.
+	 *
+	 * @throws IOException
+	 */
+	private void endValue() throws IOException {
+		if (text != null)
+			text.close();
+		if (binary != null)
+			binary.close();
+		text = null;
+		binary = null;
+		pending.append("</").append(names[column]).append('>');
+		column++;
+	}
+
+	/**
+	 * @param name
+	 *            Element name.
+	 * @param value
+	 *            Text content.
+	 */
+	private void element(final String name, final String value) {
+		pending.append('<').append(name).append('>');
+		for (int i = 0; i < value.length(); i++)
+			escape(value.charAt(i));
+		pending.append("</").append(name).append('>');
+	}
+
+	/**
+	 * @param buffer
+	 *            Characters to escape.
+	 * @param len
+	 *            Number of characters.
+	 */
+	private void escape(final char[] buffer, final int len) {
+		for (int i = 0; i < len; i++)
+			escape(buffer[i]);
+	}
+
+	/**
+	 * Appends a character as XML text. Characters that are not allowed in
+	 * XML are replaced by U+FFFD.
+	 *
+	 * @param ch
+	 *            The character.
+	 */
+	private void escape(final char ch) {
+		switch (ch) {
+		case '&':
+			pending.append("&amp;");
+			break;
+		case '<':
+			pending.append("&lt;");
+			break;
+		case '>':
+			pending.append("&gt;");
+			break;
+		case '\r':
+			pending.append("&#13;");
+			break;
+		default:
+			if (ch < 0x20 && ch != '\t' && ch != '\n' || ch == 0xFFFE || ch == 0xFFFF)
+				pending.append('\uFFFD');
+			else
+				pending.append(ch);
+		}
+	}
+
+	/**
+	 * Appends bytes from the byte buffer as base64. Only the last chunk of a
+	 * value may have a length that is not a multiple of 3.
+	 *
+	 * @param len
+	 *            Number of bytes.
+	 */
+	private void base64(final int len) {
+		for (int i = 0; i < len; i += 3) {
+			final int b0 = bytes[i] & 0xFF;
+			final int b1 = i + 1 < len ? bytes[i + 1] & 0xFF : 0;
+			final int b2 = i + 2 < len ? bytes[i + 2] & 0xFF : 0;
+			pending.append(BASE64[b0 >> 2]);
+			pending.append(BASE64[(b0 & 3) << 4 | b1 >> 4]);
+			pending.append(i + 1 < len ? BASE64[(b1 & 0xF) << 2 | b2 >> 6] : '=');
+			pending.append(i + 2 < len ? BASE64[b2 & 0x3F] : '=');
+		}
+	}
+
+	/**
+	 * Turns a column label into an XML element name. Characters that are not
+	 * allowed are replaced by an underscore.
+	 *
+	 * @param label
+	 *            The column label.
+	 * @return the element name.
+	 */
+	static String name(final String label) {
+		final StringBuilder sb = new StringBuilder(label.length() + 1);
+		for (int i = 0; i < label.length(); i++) {
+			final char ch = label.charAt(i);
+			final boolean start = Character.isLetter(ch) || ch == '_';
+			if (i == 0 && !start)
+				sb.append('_');
+			sb.append(start || Character.isDigit(ch) || ch == '-' || ch == '.' ? ch : '_');
+		}
+		return sb.length() == 0 ? "_" : sb.toString();
+	}
+}
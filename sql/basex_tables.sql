@@ -0,0 +1,70 @@
+-- Tables used by the basex_client, basex_session and basex_parallel packages.
+-- Run as the client user before using set_slow_query_log, set_dedup or
+-- basex_parallel.
+
+-- executions slower than the threshold of set_slow_query_log, times in
+-- milliseconds: the server phases from QRY_INFO, the client time spent
+-- writing the result LOB, and the rest of the client time as network time
+create table basex_slow_queries (
+  logged        timestamp default systimestamp not null,
+  session_id    number,
+  query_hash    varchar2(32),
+  query_text    clob,
+  variables     varchar2(4000),
+  parsing_ms    number,
+  compiling_ms  number,
+  evaluating_ms number,
+  printing_ms   number,
+  server_ms     number,
+  network_ms    number,
+  lob_ms        number,
+  total_ms      number
+);
+create index basex_slow_queries_hash on basex_slow_queries (query_hash);
+
+-- SHA-256 digests of the UTF-8 content of the documents sent by add and
+-- replace while set_dedup is on, with their size in bytes; server is the
+-- 'host:port' of the session
+create table basex_digests (
+  server        varchar2(300) not null,
+  database_name varchar2(128) not null,
+  path          varchar2(1000) not null,
+  digest        varchar2(64) not null,
+  bytes         number,
+  updated       timestamp default systimestamp not null,
+  constraint basex_digests_pk primary key (server, database_name, path)
+);
+
+-- outcome of every chunk loaded by basex_parallel: the documents sent, those
+-- the server refused, the bytes sent and the time taken; error holds the
+-- error that ended the chunk, or the first refused document
+create table basex_parallel_chunks (
+  task_name        varchar2(128) not null,
+  start_id         varchar2(100),
+  end_id           varchar2(100),
+  started          timestamp not null,
+  documents        number,
+  failed_documents number,
+  bytes_sent       number,
+  seconds          number,
+  error            varchar2(4000)
+);
+create index basex_parallel_chunks_task on basex_parallel_chunks (task_name);
+
+-- parameters of the basex_parallel tasks, read by the jobs loading their
+-- chunks; the password is only set while chunks run, and the row is
+-- deleted with the task
+create table basex_parallel_tasks (
+  task_name     varchar2(128) not null,
+  host          varchar2(255) not null,
+  port          number not null,
+  username      varchar2(128) not null,
+  password      varchar2(128),
+  database_name varchar2(128) not null,
+  command       varchar2(30) not null,
+  source        clob not null,
+  by_rowid      number(1) not null,
+  depth         number not null,
+  row_tag       varchar2(128),
+  constraint basex_parallel_tasks_pk primary key (task_name)
+);
@@ -0,0 +1,109 @@
+-- SQL types used by the basex_client, basex_session and basex_parallel packages.
+-- Run as the client user before creating the packages.
+
+-- a document for bulk ingest: text content for add/replace, binary for store
+create or replace type basex_document as object (
+  path    varchar2(4000),
+  content clob,
+  data    blob
+);
+/
+create or replace type basex_document_list as table of basex_document;
+/
+-- the outcome of one command of a batch
+create or replace type basex_status as object (
+  name    varchar2(4000),
+  ok      number(1),
+  info    varchar2(4000)
+);
+/
+create or replace type basex_status_list as table of basex_status;
+/
+-- the outcome of a bulk ingest or export from a query: documents sent, of
+-- which failed_documents were refused, bytes sent, and the first 100 failed
+-- documents
+create or replace type basex_ingest_result as object (
+  documents        number,
+  failed_documents number,
+  bytes_sent       number,
+  failures         basex_status_list
+);
+/
+-- a batch of query results
+create or replace type basex_clob_list as table of clob;
+/
+create or replace type basex_string_list as table of varchar2(4000);
+/
+-- client metrics of one protocol command, times in milliseconds
+create or replace type basex_metric as object (
+  command        varchar2(30),
+  calls          number,
+  bytes_sent     number,
+  bytes_received number,
+  escape_bytes   number,
+  total_ms       number,
+  p50_ms         number,
+  p95_ms         number,
+  p99_ms         number,
+  max_ms         number
+);
+/
+create or replace type basex_metric_list as table of basex_metric;
+/
+-- counters of the query result cache
+create or replace type basex_cache_stats as object (
+  hits          number,
+  misses        number,
+  entries       number,
+  bytes         number,
+  evictions     number,
+  invalidations number
+);
+/
+-- documents skipped and sent by add and replace while set_dedup is on
+create or replace type basex_dedup_stats as object (
+  skipped       number,
+  sent          number,
+  skipped_bytes number,
+  sent_bytes    number
+);
+/
+-- output and outcome of one command of a batch
+create or replace type basex_command_result as object (
+  command varchar2(4000),
+  ok      number(1),
+  output  clob,
+  info    varchar2(4000)
+);
+/
+create or replace type basex_command_result_list as table of basex_command_result;
+/
+-- an open query of a session and the result bytes it holds; state is none
+-- (no results requested), cached, streaming or prefetch
+create or replace type basex_cursor as object (
+  session_id    number,
+  query_id      varchar2(100),
+  state         varchar2(10),
+  prepared      number(1),
+  idle_seconds  number,
+  heap_bytes    number,
+  spilled_bytes number
+);
+/
+create or replace type basex_cursor_list as table of basex_cursor;
+/
+-- summed up outcome of a parallel load: chunks, of which failed_chunks ended
+-- with an error, documents sent, of which failed_documents were refused,
+-- bytes sent, elapsed seconds and throughput
+create or replace type basex_parallel_result as object (
+  task_name            varchar2(128),
+  chunks               number,
+  failed_chunks        number,
+  documents            number,
+  failed_documents     number,
+  bytes_sent           number,
+  seconds              number,
+  documents_per_second number,
+  bytes_per_second     number
+);
+/
@@ -0,0 +1,9 @@
+-- Views on the basex_client package.
+-- Run as the client user after creating the packages.
+
+-- client metrics of the current database session
+create or replace view basex_client_metrics as
+select * from table(basex_client.bx_metrics);
+-- open queries of all client sessions of the current database session
+create or replace view basex_client_cursors as
+select * from table(basex_client.bx_open_cursors);
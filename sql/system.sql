@@ -1,11 +1,22 @@
--- create the user that will run the client.
-create user BASEX identified by "3xt3ns1bl3";
-grant unlimited tablespace to BASEX; -- or whatever tablespace and quota
-grant create procedure to BASEX;
-grant create session to BASEX;
-grant create table to BASEX;
--- enable the JVM to connect to BaseX (default host and port here).
-begin
-  dbms_java.grant_permission( 'BASEX', 'SYS:java.net.SocketPermission', 'localhost:1984', 'connect,resolve' );
-end;
-/
+-- create the user that will run the client.
+create user BASEX identified by "3xt3ns1bl3";
+grant unlimited tablespace to BASEX; -- or whatever tablespace and quota
+grant create procedure to BASEX;
+grant create session to BASEX;
+grant create table to BASEX;
+grant create type to BASEX;
+grant create view to BASEX;
+-- optional: let basex_parallel run its chunks as scheduler jobs.
+grant create job to BASEX;
+-- enable the JVM to connect to BaseX (default host and port here).
+begin
+  dbms_java.grant_permission( 'BASEX', 'SYS:java.net.SocketPermission', 'localhost:1984', 'connect,resolve' );
+end;
+/
+-- optional: let bx_store_file/bx_retrieve_file use the files of a directory.
+--create directory BASEX_FILES as '/data/basex';
+--grant read, write on directory BASEX_FILES to BASEX;
+--begin
+--  dbms_java.grant_permission( 'BASEX', 'SYS:java.io.FilePermission', '/data/basex/*', 'read,write' );
+--end;
+--/